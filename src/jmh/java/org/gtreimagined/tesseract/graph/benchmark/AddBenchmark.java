@@ -0,0 +1,67 @@
+package org.gtreimagined.tesseract.graph.benchmark;
+
+import org.gtreimagined.tesseract.graph.testing.BlockWorld;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds a network from nothing, one element at a time. This measures {@code addElement}, including the merges when a
+ * new element joins several networks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AddBenchmark {
+
+    @Param({"CHAIN", "LATTICE", "STAR"})
+    public Shape shape;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean compactStorage;
+
+    private Layout layout;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        layout = Layout.of(shape, size, 16);
+    }
+
+    @Benchmark
+    public BlockWorld add() {
+        BlockWorld world = new BlockWorld(compactStorage, false);
+        layout.placeIn(world);
+        return world;
+    }
+
+    @Benchmark
+    public BlockWorld addBatched() {
+        BlockWorld world = new BlockWorld(compactStorage, false);
+        world.grid.beginBatch();
+
+        try {
+            layout.placeIn(world);
+        } finally {
+            world.grid.commitBatch();
+        }
+
+        return world;
+    }
+}
@@ -0,0 +1,67 @@
+package org.gtreimagined.tesseract.graph.benchmark;
+
+import org.gtreimagined.tesseract.graph.testing.BlockWorld;
+
+/**
+ * The positions of a benchmark network, in the order they're placed in.
+ * Every {@code notableEvery}th element is notable, except for the pivot. The pivot is the element that splits the
+ * network when it's removed, if there is one.
+ */
+public final class Layout {
+
+    private final int[] positions;
+    private final boolean[] notable;
+    private final int pivot;
+
+    private Layout(int[] positions, boolean[] notable, int pivot) {
+        this.positions = positions;
+        this.notable = notable;
+        this.pivot = pivot;
+    }
+
+    public static Layout of(Shape shape, int size, int notableEvery) {
+        int[] positions = shape.positions(size);
+        int count = positions.length / 3;
+        int pivot = shape.pivot(count);
+        boolean[] notable = new boolean[count];
+
+        for (int i = 0; i < count; i++) {
+            notable[i] = notableEvery > 0 && i % notableEvery == 0 && i != pivot;
+        }
+
+        return new Layout(positions, notable, pivot);
+    }
+
+    public int size() {
+        return notable.length;
+    }
+
+    public int x(int i) {
+        return positions[i * 3];
+    }
+
+    public int y(int i) {
+        return positions[i * 3 + 1];
+    }
+
+    public int z(int i) {
+        return positions[i * 3 + 2];
+    }
+
+    public boolean notable(int i) {
+        return notable[i];
+    }
+
+    public int pivot() {
+        return pivot;
+    }
+
+    /**
+     * Places every element of this layout into a world, in order.
+     */
+    public void placeIn(BlockWorld world) {
+        for (int i = 0; i < size(); i++) {
+            world.place(x(i), y(i), z(i), notable(i));
+        }
+    }
+}
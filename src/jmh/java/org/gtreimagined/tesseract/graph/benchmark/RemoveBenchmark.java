@@ -0,0 +1,85 @@
+package org.gtreimagined.tesseract.graph.benchmark;
+
+import org.gtreimagined.tesseract.graph.testing.BlockElement;
+import org.gtreimagined.tesseract.graph.testing.BlockWorld;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tears a network down, one element at a time, starting with the first element that was placed. This measures
+ * {@code removeElement}, including the split checks after every removal.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RemoveBenchmark {
+
+    @Param({"CHAIN", "LATTICE", "STAR"})
+    public Shape shape;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean compactStorage;
+
+    private Layout layout;
+    private BlockWorld world;
+    private final List<BlockElement> elements = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setupLayout() {
+        layout = Layout.of(shape, size, 16);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupWorld() {
+        world = new BlockWorld(compactStorage, false);
+        elements.clear();
+
+        for (int i = 0; i < layout.size(); i++) {
+            elements.add(world.place(layout.x(i), layout.y(i), layout.z(i), layout.notable(i)));
+        }
+    }
+
+    @Benchmark
+    public BlockWorld remove() {
+        for (BlockElement element : elements) {
+            world.remove(element);
+        }
+
+        return world;
+    }
+
+    @Benchmark
+    public BlockWorld removeBatched() {
+        world.grid.beginBatch();
+
+        try {
+            for (BlockElement element : elements) {
+                world.remove(element);
+            }
+        } finally {
+            world.grid.commitBatch();
+        }
+
+        return world;
+    }
+}
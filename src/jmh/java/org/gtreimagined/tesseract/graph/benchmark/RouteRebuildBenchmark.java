@@ -0,0 +1,84 @@
+package org.gtreimagined.tesseract.graph.benchmark;
+
+import org.gtreimagined.tesseract.graph.standard.StandardRouteTracker;
+import org.gtreimagined.tesseract.graph.testing.BlockElement;
+import org.gtreimagined.tesseract.graph.testing.BlockNetwork;
+import org.gtreimagined.tesseract.graph.testing.BlockWorld;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebuilds the routes of networks with many notable elements.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RouteRebuildBenchmark {
+
+    @Param({"CHAIN", "LATTICE", "STAR"})
+    public Shape shape;
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    /** Every how many elements one is notable. */
+    @Param({"2", "8", "32"})
+    public int notableEvery;
+
+    @Param({"false", "true"})
+    public boolean shortestPaths;
+
+    private BlockWorld world;
+    private BlockElement pivot;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Layout layout = Layout.of(shape, size, notableEvery);
+        world = new BlockWorld(false, shortestPaths);
+        layout.placeIn(world);
+        world.grid.tick();
+        pivot = world.get(layout.x(layout.pivot()), layout.y(layout.pivot()), layout.z(layout.pivot()));
+    }
+
+    /**
+     * Rebuilds every route from scratch.
+     */
+    @Benchmark
+    public BlockWorld fullRebuild() {
+        for (BlockNetwork network : world.grid.networks) {
+            ((StandardRouteTracker<?, ?, ?, ?, ?>) network.getTracker()).markAllDirty();
+            network.updateRoutes();
+        }
+
+        return world;
+    }
+
+    /**
+     * Replaces one pipe and rebuilds the routes on the next tick, which only needs to rebuild the routes near the
+     * pipe.
+     */
+    @Benchmark
+    public BlockWorld localRebuild() {
+        world.remove(pivot);
+        world.grid.tick();
+        pivot = world.place(pivot.x, pivot.y, pivot.z, pivot.notable);
+        world.grid.tick();
+
+        return world;
+    }
+}
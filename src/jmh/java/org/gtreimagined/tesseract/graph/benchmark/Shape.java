@@ -0,0 +1,93 @@
+package org.gtreimagined.tesseract.graph.benchmark;
+
+/**
+ * The shapes that benchmark networks are built in.
+ */
+public enum Shape {
+    /**
+     * A straight pipe line. Removing the middle splits it in two.
+     */
+    CHAIN {
+        @Override
+        int[] positions(int size) {
+            int[] positions = new int[size * 3];
+
+            for (int i = 0; i < size; i++) {
+                positions[i * 3] = i;
+            }
+
+            return positions;
+        }
+
+        @Override
+        int pivot(int count) {
+            return count / 2;
+        }
+    },
+    /**
+     * A solid cube of pipes, so that every element has several paths to every other one. Removing the centre never
+     * splits it.
+     */
+    LATTICE {
+        @Override
+        int[] positions(int size) {
+            int side = Math.max(2, (int) Math.round(Math.cbrt(size)));
+            int[] positions = new int[side * side * side * 3];
+            int i = 0;
+
+            for (int x = 0; x < side; x++) {
+                for (int y = 0; y < side; y++) {
+                    for (int z = 0; z < side; z++) {
+                        positions[i++] = x;
+                        positions[i++] = y;
+                        positions[i++] = z;
+                    }
+                }
+            }
+
+            return positions;
+        }
+
+        @Override
+        int pivot(int count) {
+            int side = (int) Math.round(Math.cbrt(count));
+            int middle = side / 2;
+
+            return (middle * side + middle) * side + middle;
+        }
+    },
+    /**
+     * A junction with six long arms. Removing the junction splits it into six networks.
+     */
+    STAR {
+        @Override
+        int[] positions(int size) {
+            int arm = Math.max(1, (size - 1) / 6);
+            int[] positions = new int[(arm * 6 + 1) * 3];
+            int i = 3;
+
+            for (int axis = 0; axis < 3; axis++) {
+                for (int sign = -1; sign <= 1; sign += 2) {
+                    for (int step = 1; step <= arm; step++) {
+                        positions[i + axis] = sign * step;
+                        i += 3;
+                    }
+                }
+            }
+
+            return positions;
+        }
+
+        @Override
+        int pivot(int count) {
+            return 0;
+        }
+    };
+
+    /**
+     * @return The x, y and z of every element, in placement order.
+     */
+    abstract int[] positions(int size);
+
+    abstract int pivot(int count);
+}
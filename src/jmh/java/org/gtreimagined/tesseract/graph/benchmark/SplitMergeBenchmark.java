@@ -0,0 +1,60 @@
+package org.gtreimagined.tesseract.graph.benchmark;
+
+import org.gtreimagined.tesseract.graph.testing.BlockElement;
+import org.gtreimagined.tesseract.graph.testing.BlockWorld;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repeatedly breaks and replaces the pivot of a large network, like a player fiddling with a pipe in the middle of a
+ * base. For chains and stars this splits the network and subsumes the pieces back together; for lattices the network
+ * never splits, so it measures how quickly a removal finds out that nothing was cut off.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SplitMergeBenchmark {
+
+    @Param({"CHAIN", "LATTICE", "STAR"})
+    public Shape shape;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean compactStorage;
+
+    private BlockWorld world;
+    private BlockElement pivot;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Layout layout = Layout.of(shape, size, 16);
+        world = new BlockWorld(compactStorage, false);
+        layout.placeIn(world);
+        pivot = world.get(layout.x(layout.pivot()), layout.y(layout.pivot()), layout.z(layout.pivot()));
+    }
+
+    @Benchmark
+    public int splitAndMerge() {
+        world.remove(pivot);
+        pivot = world.place(pivot.x, pivot.y, pivot.z, pivot.notable);
+
+        return world.grid.networks.size();
+    }
+}
@@ -0,0 +1,228 @@
+package org.gtreimagined.tesseract.graph.benchmark;
+
+import org.gtreimagined.tesseract.graph.standard.GridVerifier;
+import org.gtreimagined.tesseract.graph.testing.BlockElement;
+import org.gtreimagined.tesseract.graph.testing.BlockGrid;
+import org.gtreimagined.tesseract.graph.testing.BlockNetwork;
+import org.gtreimagined.tesseract.graph.testing.BlockWorld;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Hammers a grid with random edits and checks it against a reference union-find, since the grid's own bookkeeping
+ * can't be trusted to check itself.
+ * Every edit toggles a random cell of a cube: filled cells are emptied and empty cells are filled with a chance that
+ * keeps the cube near the target density, so that networks keep splitting and merging. Every few edits the grid is
+ * {@link GridVerifier verified}, and its networks are compared to the components a union-find finds from scratch.
+ * At the end the surviving elements are loaded into a fresh grid in one batch, which must agree as well.
+ * Edits only depend on the seed, so a failure can be replayed by running again with the same arguments.
+ * <p>
+ * Run with {@code ./gradlew stress --args="<seed> <edits> <side> <density> <checkEvery> <batchSize> <compactStorage>"};
+ * every argument is optional.
+ */
+public class StressHarness {
+
+    private final Random random;
+    private final int side;
+    private final double fillChance;
+    private final int batchSize;
+    private final boolean compactStorage;
+
+    private final BlockWorld world;
+    private final BlockElement[] cells;
+    private final int[] parents;
+
+    private long adds = 0;
+    private long removes = 0;
+    private long editNanos = 0;
+
+    public StressHarness(long seed, int side, double density, int batchSize, boolean compactStorage) {
+        this.random = new Random(seed);
+        this.side = side;
+        // cells are emptied as often as they're picked, so filling them this often settles on the density
+        this.fillChance = density / (1 - density);
+        this.batchSize = batchSize;
+        this.compactStorage = compactStorage;
+        this.world = new BlockWorld(compactStorage, false);
+        this.cells = new BlockElement[side * side * side];
+        this.parents = new int[cells.length];
+    }
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+        long edits = args.length > 1 ? Long.parseLong(args[1]) : 1_000_000;
+        int side = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        double density = args.length > 3 ? Double.parseDouble(args[3]) : 0.3;
+        long checkEvery = args.length > 4 ? Long.parseLong(args[4]) : 50_000;
+        int batchSize = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+        boolean compactStorage = args.length > 6 && Boolean.parseBoolean(args[6]);
+
+        StressHarness harness = new StressHarness(seed, side, density, batchSize, compactStorage);
+        long done = 0;
+
+        while (done < edits) {
+            long count = Math.min(checkEvery, edits - done);
+
+            harness.edit(count);
+            done += count;
+            harness.check("after " + done + " edits with seed " + seed);
+        }
+
+        harness.checkReplay("replaying seed " + seed);
+        harness.report(done);
+    }
+
+    /**
+     * Makes some random edits, in batches if the batch size is above 1.
+     */
+    public void edit(long count) {
+        long start = System.nanoTime();
+
+        for (long i = 0; i < count; i += batchSize) {
+            if (batchSize > 1) world.grid.beginBatch();
+
+            try {
+                for (long j = i; j < Math.min(count, i + batchSize); j++) {
+                    editRandomCell();
+                }
+            } finally {
+                if (batchSize > 1) world.grid.commitBatch();
+            }
+        }
+
+        editNanos += System.nanoTime() - start;
+    }
+
+    private void editRandomCell() {
+        int cell = random.nextInt(cells.length);
+
+        if (cells[cell] != null) {
+            world.remove(cells[cell]);
+            cells[cell] = null;
+            removes++;
+        } else if (random.nextDouble() < fillChance) {
+            int x = cell % side;
+            int y = cell / side % side;
+            int z = cell / (side * side);
+
+            cells[cell] = world.place(x, y, z, random.nextInt(16) == 0);
+            adds++;
+        }
+    }
+
+    /**
+     * @throws IllegalStateException If the grid is inconsistent, or its networks aren't the components of the cube.
+     */
+    public void check(String when) {
+        List<String> problems = GridVerifier.verify(world.grid);
+
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("The grid is inconsistent " + when + ":\n" + String.join("\n", problems));
+        }
+
+        compareComponents(world.grid, cells, when);
+    }
+
+    /**
+     * Loads every element that's left into a fresh grid in one go, which must end up with the same networks.
+     */
+    public void checkReplay(String when) {
+        BlockWorld replay = new BlockWorld(compactStorage, false);
+        BlockElement[] placed = new BlockElement[cells.length];
+
+        replay.grid.beginBatch();
+
+        try {
+            for (int cell = 0; cell < cells.length; cell++) {
+                BlockElement element = cells[cell];
+
+                if (element != null) placed[cell] = replay.place(element.x, element.y, element.z, element.notable);
+            }
+        } finally {
+            replay.grid.commitBatch();
+        }
+
+        List<String> problems = GridVerifier.verify(replay.grid);
+
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("The replayed grid is inconsistent " + when + ":\n" + String.join("\n", problems));
+        }
+
+        if (replay.grid.networks.size() != world.grid.networks.size()) {
+            throw new IllegalStateException("The replayed grid has " + replay.grid.networks.size() + " networks instead of " + world.grid.networks.size() + " " + when);
+        }
+
+        compareComponents(replay.grid, placed, when);
+    }
+
+    /**
+     * Finds the components of the cube with a union-find, then checks that two cells are in the same network exactly
+     * when they're in the same component.
+     */
+    private void compareComponents(BlockGrid grid, BlockElement[] elementsByCell, String when) {
+        for (int cell = 0; cell < cells.length; cell++) {
+            parents[cell] = cell;
+        }
+
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] == null) continue;
+
+            int x = cell % side;
+            int y = cell / side % side;
+            int z = cell / (side * side);
+
+            if (x + 1 < side && cells[cell + 1] != null) union(cell, cell + 1);
+            if (y + 1 < side && cells[cell + side] != null) union(cell, cell + side);
+            if (z + 1 < side && cells[cell + side * side] != null) union(cell, cell + side * side);
+        }
+
+        HashMap<Integer, BlockNetwork> networks = new HashMap<>();
+        HashMap<BlockNetwork, Integer> roots = new HashMap<>();
+        int elements = 0;
+
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] == null) continue;
+
+            BlockElement element = elementsByCell[cell];
+            BlockNetwork network = element.getNetwork();
+            int root = find(cell);
+            BlockNetwork expected = networks.putIfAbsent(root, network);
+            Integer expectedRoot = roots.putIfAbsent(network, root);
+
+            if (expected != null && expected != network) {
+                throw new IllegalStateException(element + " is in a different network from an element it's connected to " + when);
+            }
+
+            if (expectedRoot != null && expectedRoot != root) {
+                throw new IllegalStateException(element + " is in the same network as an element it isn't connected to " + when);
+            }
+
+            elements++;
+        }
+
+        if (roots.size() != grid.networks.size() || elements != grid.storage.size()) {
+            throw new IllegalStateException("The grid has " + grid.networks.size() + " networks of " + grid.storage.size() + " elements, but the cube has " + roots.size() + " components of " + elements + " elements " + when);
+        }
+    }
+
+    private int find(int cell) {
+        while (parents[cell] != cell) {
+            parents[cell] = parents[parents[cell]];
+            cell = parents[cell];
+        }
+
+        return cell;
+    }
+
+    private void union(int a, int b) {
+        parents[find(a)] = find(b);
+    }
+
+    public void report(long edits) {
+        double seconds = editNanos / 1e9;
+
+        System.out.printf("%d edits (%d adds, %d removes) in %.2fs: %.0f edits/s, %d networks of %d elements left%n", edits, adds, removes, seconds, edits / seconds, world.grid.networks.size(), world.grid.storage.size());
+    }
+}
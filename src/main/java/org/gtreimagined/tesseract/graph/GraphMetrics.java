@@ -0,0 +1,83 @@
+package org.gtreimagined.tesseract.graph;
+
+import org.gtreimagined.tesseract.graph.metrics.RecordingGraphMetrics;
+
+import java.util.ServiceLoader;
+
+/**
+ * Receives measurements from grids and networks.
+ * Like {@link GraphUtils}, the implementation is loaded with {@link ServiceLoader}. If none is registered, nothing is
+ * recorded; register {@link RecordingGraphMetrics} (or your own implementation) to collect them.
+ * Methods may be called from several threads at once when a grid rebuilds routes in parallel, and are called on hot
+ * paths, so implementations must be cheap and must not block.
+ */
+public interface GraphMetrics {
+    /** Does nothing with the measurements. */
+    GraphMetrics NOOP = new GraphMetrics() {};
+
+    GraphMetrics INSTANCE = ServiceLoader.load(GraphMetrics.class).findFirst().orElse(NOOP);
+
+    /**
+     * Called after an added element walked its adjacent elements to find the networks it connects to.
+     *
+     * @param elements The number of elements that were walked.
+     */
+    default void onWalk(int elements, long nanos) {
+
+    }
+
+    /**
+     * Called when removed elements split their network.
+     *
+     * @param newNetworks The number of networks that were split off.
+     */
+    default void onSplit(int newNetworks, long nanos) {
+
+    }
+
+    /**
+     * Called when an added element joined several networks together.
+     *
+     * @param subsumedNetworks The number of networks that were subsumed into the biggest one.
+     */
+    default void onMerge(int subsumedNetworks, long nanos) {
+
+    }
+
+    /**
+     * Called when a batch of topology changes was committed. The splits and merges of the batch have already been
+     * reported through {@link #onSplit} and {@link #onMerge}; these are their totals.
+     *
+     * @param createdNetworks  The number of networks that were created for added elements that didn't join any.
+     * @param splitOffNetworks The number of networks that were split off by removed elements.
+     * @param subsumedNetworks The number of networks that were subsumed by added elements.
+     */
+    default void onBatchCommitted(int added, int removed, int createdNetworks, int splitOffNetworks, int subsumedNetworks, long nanos) {
+
+    }
+
+    /**
+     * Called after a network rebuilt its routes.
+     *
+     * @param elements The number of elements in the network.
+     */
+    default void onRouteRebuild(int elements, long nanos) {
+
+    }
+
+    default void onNetworkCreated() {
+
+    }
+
+    default void onNetworkRemoved() {
+
+    }
+
+    default void onElementAdded() {
+
+    }
+
+    default void onElementRemoved() {
+
+    }
+}
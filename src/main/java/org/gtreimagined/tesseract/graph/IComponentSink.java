@@ -0,0 +1,8 @@
+package org.gtreimagined.tesseract.graph;
+
+/**
+ * Receives the components of an element; see {@link IElement#forEachComponent(IComponentSink)}.
+ */
+public interface IComponentSink {
+    <T> void accept(Class<T> iface, T impl);
+}
@@ -23,6 +23,14 @@ public interface IElement<TSelf extends IElement<TSelf, TNotableElement, TRoutin
 
     void setNetwork(TNetwork network);
 
+    /**
+     * The region this element is in, such as its packed chunk position, for grids that keep track of elements by
+     * region. This must not change while the element is in a grid.
+     */
+    default long getRegion() {
+        return 0;
+    }
+
     default void onNeighbourAdded(TSelf neighbour) {
         onNeighbourChanged(neighbour);
     }
@@ -35,6 +43,21 @@ public interface IElement<TSelf extends IElement<TSelf, TNotableElement, TRoutin
 
     }
 
+    /**
+     * Called once at the end of a topology update with every neighbour this element gained and lost during it, when
+     * the grid coalesces neighbour events. A neighbour that was lost and gained again isn't included.
+     * By default this calls {@link #onNeighbourRemoved} and {@link #onNeighbourAdded} for each of them.
+     */
+    default void onNeighboursChanged(Collection<TSelf> added, Collection<TSelf> removed) {
+        for (TSelf neighbour : removed) {
+            onNeighbourRemoved(neighbour);
+        }
+
+        for (TSelf neighbour : added) {
+            onNeighbourAdded(neighbour);
+        }
+    }
+
     /**
      * A component is an object provided by this element.
      * Generally the component implementation is just {@code this}, but it can be anything.
@@ -47,4 +70,16 @@ public interface IElement<TSelf extends IElement<TSelf, TNotableElement, TRoutin
     default List<Pair<Class<?>, Object>> getComponents() {
         return Collections.emptyList();
     }
+
+    /**
+     * Passes every component of this element to the sink.
+     * Override this instead of {@link #getComponents()} to avoid allocating a list of pairs every time this element
+     * joins or leaves a network, e.g. {@code sink.accept(IEnergySink.class, this)}.
+     */
+    @SuppressWarnings("unchecked")
+    default void forEachComponent(IComponentSink sink) {
+        for (Pair<Class<?>, Object> component : getComponents()) {
+            sink.accept((Class<Object>) component.left(), component.right());
+        }
+    }
 }
@@ -0,0 +1,23 @@
+package org.gtreimagined.tesseract.graph;
+
+/**
+ * A component that accepts something, like items, fluid or energy, from the sources of its network every tick.
+ * Extend this with an interface per kind of flow and register implementations as components under that interface.
+ */
+public interface IFlowSink<TNotableElement> {
+
+    /**
+     * @return The notable element that routes lead to for this sink.
+     */
+    TNotableElement getFlowNode();
+
+    /**
+     * @return How much this sink can accept this tick.
+     */
+    long getDemand();
+
+    /**
+     * Called once per tick with how much was received in total, if anything was. This is never more than the demand.
+     */
+    void receive(long amount);
+}
@@ -0,0 +1,23 @@
+package org.gtreimagined.tesseract.graph;
+
+/**
+ * A component that sends something, like items, fluid or energy, to the sinks of its network every tick.
+ * Extend this with an interface per kind of flow and register implementations as components under that interface.
+ */
+public interface IFlowSource<TNotableElement> {
+
+    /**
+     * @return The notable element whose routes this source sends along.
+     */
+    TNotableElement getFlowNode();
+
+    /**
+     * @return How much this source can send this tick.
+     */
+    long getOffer();
+
+    /**
+     * Called once per tick with how much was sent in total, if anything was. This is never more than the offer.
+     */
+    void extract(long amount);
+}
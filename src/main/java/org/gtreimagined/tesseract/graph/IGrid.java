@@ -2,6 +2,8 @@ package org.gtreimagined.tesseract.graph;
 
 import org.gtreimagined.tesseract.graph.standard.StandardGrid;
 
+import java.util.Collection;
+
 /**
  * A factory grid is the global coordinator for your factory pipe system.
  * Grids will create and destroy networks as elements join or leave the world.
@@ -32,10 +34,60 @@ public interface IGrid<TSelf extends IGrid<TSelf, TElement, TNotableElement, TRo
      */
     public void removeElementQuietly(TElement element);
 
+    /**
+     * Starts a batch of topology changes.
+     * Until the matching {@link #commitBatch()}, {@link #addElement} and {@link #removeElement} only record the change;
+     * neighbours and networks are updated once when the batch is committed.
+     * Batches may be nested, in which case only the outermost commit applies the changes.
+     */
+    public void beginBatch();
+
+    /**
+     * Applies every change recorded since the matching {@link #beginBatch()}.
+     * This fires the same element and network callbacks as adding or removing the elements one by one.
+     */
+    public void commitBatch();
+
+    /**
+     * Adds several elements at once. Prefer this over calling {@link #addElement} in a loop.
+     */
+    public default void addElements(Collection<TElement> elements) {
+        beginBatch();
+
+        try {
+            for (TElement element : elements) {
+                addElement(element);
+            }
+        } finally {
+            commitBatch();
+        }
+    }
+
+    /**
+     * Removes several elements at once. Prefer this over calling {@link #removeElement} in a loop.
+     */
+    public default void removeElements(Collection<TElement> elements) {
+        beginBatch();
+
+        try {
+            for (TElement element : elements) {
+                removeElement(element);
+            }
+        } finally {
+            commitBatch();
+        }
+    }
+
     /**
      * Subsumes a network into another one.
      * You generally shouldn't call this unless you have a good reason since network subsuming/splitting is handled
      * automatically.
      */
     public void subsume(TNetwork dest, TNetwork source);
+
+    /**
+     * Returns the neighbours of an element as of the last topology update, without asking the element again.
+     * The returned collection must not be modified.
+     */
+    public Collection<TElement> getAdjacent(TElement element);
 }
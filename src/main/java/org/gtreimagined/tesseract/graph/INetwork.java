@@ -2,6 +2,7 @@ package org.gtreimagined.tesseract.graph;
 
 import org.gtreimagined.tesseract.graph.standard.StandardNetwork;
 
+import java.util.ArrayList;
 import java.util.Collection;
 
 /**
@@ -20,6 +21,38 @@ public interface INetwork<TSelf extends INetwork<TSelf, TElement, TNotableElemen
 
     public Collection<TElement> getElements();
 
+    /**
+     * Called by the grid when the neighbours of one of this network's elements changed.
+     */
+    public default void onAdjacencyChanged(TElement element) {
+        getTracker().onAdjacencyChanged(element);
+    }
+
+    /**
+     * @return The grid that created this network, or null if it isn't managed by a grid.
+     */
+    public default TGrid getGrid() {
+        return null;
+    }
+
+    public default void setGrid(TGrid grid) {
+
+    }
+
+    /**
+     * Moves every element of another network into this one, leaving the source network empty.
+     * The default implementation moves the elements one by one; implementations should override this to move their
+     * element sets, components and tracker state in bulk.
+     */
+    @SuppressWarnings("unchecked")
+    public default void absorb(TSelf source) {
+        for (TElement element : new ArrayList<>(source.getElements())) {
+            source.removeElement(element);
+            element.setNetwork((TSelf) this);
+            addElement(element);
+        }
+    }
+
     IRouteTracker<TRoutingInfo, TNotableElement, TElement, TSelf, TGrid> getTracker();
 
     Class<TElement> getElementClass();
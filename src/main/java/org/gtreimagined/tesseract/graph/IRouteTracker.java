@@ -1,6 +1,8 @@
 package org.gtreimagined.tesseract.graph;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface IRouteTracker<TRoutingInfo extends IRoutingInfo<TRoutingInfo>, TNotableElement extends INotableElement<TNotableElement, TRoutingInfo, TElement, TNetwork, TGrid>, TElement extends IElement<TElement, TNotableElement, TRoutingInfo, TNetwork, TGrid>, TNetwork extends INetwork<TNetwork, TElement, TNotableElement, TRoutingInfo, TGrid>, TGrid extends IGrid<TGrid, TElement, TNotableElement, TRoutingInfo, TNetwork>> {
     List<RoutedNode<TNotableElement, TRoutingInfo>> getPaths(TNotableElement source);
@@ -9,5 +11,49 @@ public interface IRouteTracker<TRoutingInfo extends IRoutingInfo<TRoutingInfo>,
 
     void onElementRemoved(TElement element);
 
+    /**
+     * Called when the neighbours of an element in this tracker's network changed, so that routes passing by it can be
+     * invalidated.
+     */
+    default void onAdjacencyChanged(TElement element) {
+
+    }
+
+    /**
+     * Called once by the network that owns this tracker.
+     */
+    default void setNetwork(TNetwork network) {
+
+    }
+
+    /**
+     * Takes over the state of another tracker when its network is absorbed into this tracker's network.
+     * The default implementation treats every moved element as newly added.
+     */
+    default void absorb(IRouteTracker<TRoutingInfo, TNotableElement, TElement, TNetwork, TGrid> source, Collection<TElement> elements) {
+        for (TElement element : elements) {
+            onElementAdded(element);
+        }
+    }
+
     void updateEdges();
+
+    /**
+     * @return True if {@link #updateEdges()} has to be called even though the network didn't change, e.g. to publish
+     *         routes that were rebuilt in the background.
+     */
+    default boolean isUpdatePending() {
+        return false;
+    }
+
+    /**
+     * For callers that can't make do with the routes {@link #getPaths} serves while a rebuild is still pending.
+     * The default implementation completes right away with {@link #getPaths}.
+     *
+     * @return A future that completes with the routes of a notable element once every change made so far is
+     *         reflected in them.
+     */
+    default CompletableFuture<List<RoutedNode<TNotableElement, TRoutingInfo>>> getFreshPaths(TNotableElement source) {
+        return CompletableFuture.completedFuture(getPaths(source));
+    }
 }
@@ -3,4 +3,12 @@ package org.gtreimagined.tesseract.graph;
 public interface IRoutingInfo<TSelf extends IRoutingInfo<TSelf>> {
     /** Merges the distances/etc of two routing infos and returns a copy. */
     TSelf merge(TSelf other);
+
+    /**
+     * @return How much can be sent along a route with this info per tick, e.g. the throughput of its narrowest pipe.
+     *         Used when distributing flows; unlimited by default.
+     */
+    default long getCapacity() {
+        return Long.MAX_VALUE;
+    }
 }
@@ -0,0 +1,93 @@
+package org.gtreimagined.tesseract.graph.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative values.
+ * Values are counted in power-of-two buckets, so percentiles are only accurate to within a factor of two, which is
+ * plenty to spot a regression.
+ */
+public final class Histogram {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+    /** Bucket {@code i} counts the values below {@code 2^i} that aren't in a lower bucket. */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+
+        count.increment();
+        sum.add(value);
+        buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value)));
+
+        long current = max.get();
+
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = getCount();
+
+        return count == 0 ? 0 : (double) getSum() / count;
+    }
+
+    /**
+     * @param quantile Between 0 and 1, e.g. 0.99 for the 99th percentile.
+     * @return An upper bound of the given percentile, or 0 if nothing was recorded.
+     */
+    public long getPercentile(double quantile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+
+        if (total == 0) return 0;
+
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+
+            if (seen >= rank) return Math.min(getMax(), i == 0 ? 0 : (1L << i) - 1);
+        }
+
+        return getMax();
+    }
+
+    /**
+     * Forgets everything recorded so far. Values recorded concurrently with a reset may be partially lost.
+     */
+    public void reset() {
+        count.reset();
+        sum.reset();
+        max.set(0);
+
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.gtreimagined.tesseract.graph.metrics;
+
+import org.gtreimagined.tesseract.graph.GraphMetrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records every measurement into lock-free counters and histograms.
+ * To use it, register it as a {@link GraphMetrics} service, then read it with {@link #scrape()} or through its fields:
+ * <pre>{@code
+ * RecordingGraphMetrics metrics = (RecordingGraphMetrics) GraphMetrics.INSTANCE;
+ * }</pre>
+ * Timings are in nanoseconds. The network and element counts cover every grid.
+ */
+public class RecordingGraphMetrics implements GraphMetrics {
+
+    public final Histogram walkSizes = new Histogram();
+    public final Histogram walkNanos = new Histogram();
+
+    public final LongAdder splits = new LongAdder();
+    public final LongAdder splitOffNetworks = new LongAdder();
+    public final Histogram splitNanos = new Histogram();
+
+    public final LongAdder merges = new LongAdder();
+    public final LongAdder subsumedNetworks = new LongAdder();
+    public final Histogram mergeNanos = new Histogram();
+
+    public final LongAdder batches = new LongAdder();
+    public final LongAdder batchedElements = new LongAdder();
+    public final Histogram batchNanos = new Histogram();
+
+    public final Histogram routeRebuildSizes = new Histogram();
+    public final Histogram routeRebuildNanos = new Histogram();
+
+    public final LongAdder networks = new LongAdder();
+    public final LongAdder elements = new LongAdder();
+
+    @Override
+    public void onWalk(int elements, long nanos) {
+        walkSizes.record(elements);
+        walkNanos.record(nanos);
+    }
+
+    @Override
+    public void onSplit(int newNetworks, long nanos) {
+        splits.increment();
+        splitOffNetworks.add(newNetworks);
+        splitNanos.record(nanos);
+    }
+
+    @Override
+    public void onMerge(int subsumedNetworks, long nanos) {
+        merges.increment();
+        this.subsumedNetworks.add(subsumedNetworks);
+        mergeNanos.record(nanos);
+    }
+
+    @Override
+    public void onBatchCommitted(int added, int removed, int createdNetworks, int splitOffNetworks, int subsumedNetworks, long nanos) {
+        // the splits and merges were already counted when they were reported
+        batches.increment();
+        batchedElements.add(added + removed);
+        batchNanos.record(nanos);
+    }
+
+    @Override
+    public void onRouteRebuild(int elements, long nanos) {
+        routeRebuildSizes.record(elements);
+        routeRebuildNanos.record(nanos);
+    }
+
+    @Override
+    public void onNetworkCreated() {
+        networks.increment();
+    }
+
+    @Override
+    public void onNetworkRemoved() {
+        networks.decrement();
+    }
+
+    @Override
+    public void onElementAdded() {
+        elements.increment();
+    }
+
+    @Override
+    public void onElementRemoved() {
+        elements.decrement();
+    }
+
+    /**
+     * @return The current value of every metric by name, for exporting to a monitoring system.
+     */
+    public Map<String, Number> scrape() {
+        Map<String, Number> values = new LinkedHashMap<>();
+
+        values.put("networks", networks.sum());
+        values.put("elements", elements.sum());
+        values.put("splits", splits.sum());
+        values.put("split_off_networks", splitOffNetworks.sum());
+        values.put("merges", merges.sum());
+        values.put("subsumed_networks", subsumedNetworks.sum());
+        values.put("batches", batches.sum());
+        values.put("batched_elements", batchedElements.sum());
+        scrape(values, "walk_size", walkSizes);
+        scrape(values, "walk_nanos", walkNanos);
+        scrape(values, "split_nanos", splitNanos);
+        scrape(values, "merge_nanos", mergeNanos);
+        scrape(values, "batch_nanos", batchNanos);
+        scrape(values, "route_rebuild_size", routeRebuildSizes);
+        scrape(values, "route_rebuild_nanos", routeRebuildNanos);
+
+        return values;
+    }
+
+    private static void scrape(Map<String, Number> values, String name, Histogram histogram) {
+        values.put(name + "_count", histogram.getCount());
+        values.put(name + "_sum", histogram.getSum());
+        values.put(name + "_max", histogram.getMax());
+        values.put(name + "_p50", histogram.getPercentile(0.5));
+        values.put(name + "_p99", histogram.getPercentile(0.99));
+    }
+}
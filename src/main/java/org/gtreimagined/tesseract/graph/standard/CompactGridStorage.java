@@ -0,0 +1,295 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A grid storage for very large grids.
+ * Every vertex gets a dense int id, and its neighbours are stored as a block of ids in one shared int array. Ids are
+ * recycled through a free list, and blocks are compacted once enough of the array is wasted.
+ * This uses a fraction of the memory of {@link HashGridStorage} and keeps walks cache-friendly.
+ */
+public class CompactGridStorage<TElement> implements GridStorage<TElement> {
+
+    /** Enough for a pipe with a neighbour on every side. */
+    private static final int MIN_BLOCK_SIZE = 6;
+
+    private final Object2IntOpenHashMap<TElement> ids = new Object2IntOpenHashMap<>();
+    private final IntArrayList freeIds = new IntArrayList();
+    private int nextId = 0;
+
+    /** The element for every id. Ids of removed vertices keep their element until no block refers to them. */
+    private Object[] elements = new Object[64];
+    private int[] blockStarts = new int[64];
+    private int[] blockSizes = new int[64];
+    private int[] degrees = new int[64];
+    /** How many blocks refer to each id. */
+    private int[] references = new int[64];
+    private int[] stamps = new int[64];
+
+    private int[] blocks = new int[256];
+    private int blocksUsed = 0;
+    private int blocksWasted = 0;
+
+    public CompactGridStorage() {
+        ids.defaultReturnValue(-1);
+    }
+
+    @Override
+    public int size() {
+        return ids.size();
+    }
+
+    @Override
+    public boolean contains(TElement element) {
+        return ids.containsKey(element);
+    }
+
+    @Override
+    public boolean add(TElement element) {
+        if (ids.containsKey(element)) return false;
+
+        int id = freeIds.isEmpty() ? nextId++ : freeIds.popInt();
+
+        if (id >= elements.length) {
+            int length = elements.length * 2;
+            elements = Arrays.copyOf(elements, length);
+            blockStarts = Arrays.copyOf(blockStarts, length);
+            blockSizes = Arrays.copyOf(blockSizes, length);
+            degrees = Arrays.copyOf(degrees, length);
+            references = Arrays.copyOf(references, length);
+            stamps = Arrays.copyOf(stamps, length);
+        }
+
+        elements[id] = element;
+        blockStarts[id] = 0;
+        blockSizes[id] = 0;
+        degrees[id] = 0;
+        stamps[id] = 0;
+        ids.put(element, id);
+        return true;
+    }
+
+    @Override
+    public boolean remove(TElement element, Collection<TElement> oldNeighbours) {
+        int id = ids.removeInt(element);
+
+        if (id == -1) return false;
+
+        copyNeighbours(id, oldNeighbours);
+        releaseBlock(id);
+
+        // other vertices may still point at this one until they're updated, so only recycle the id once they're done;
+        // a vertex that points at itself already recycled its id when its block was released
+        if (references[id] == 0 && elements[id] != null) freeId(id);
+
+        return true;
+    }
+
+    @Override
+    public Collection<TElement> getNeighbours(TElement element) {
+        int id = ids.getInt(element);
+
+        if (id == -1 || degrees[id] == 0) return Collections.emptyList();
+
+        return new NeighbourView(id);
+    }
+
+    @Override
+    public void getNeighbours(TElement element, Collection<TElement> neighbours) {
+        int id = ids.getInt(element);
+
+        if (id != -1) copyNeighbours(id, neighbours);
+    }
+
+    @Override
+    public void setNeighbours(TElement element, Collection<TElement> neighbours, Collection<TElement> oldNeighbours) {
+        int id = ids.getInt(element);
+
+        if (id == -1) return;
+
+        copyNeighbours(id, oldNeighbours);
+
+        // this can only recycle removed vertices, which are never among the new neighbours
+        dereferenceBlock(id);
+
+        int count = neighbours.size();
+
+        if (count > blockSizes[id]) {
+            int size = Math.max(MIN_BLOCK_SIZE, count);
+            blocksWasted += blockSizes[id];
+            blockStarts[id] = allocate(size);
+            blockSizes[id] = size;
+        }
+
+        int start = blockStarts[id];
+        int degree = 0;
+
+        for (TElement neighbour : neighbours) {
+            int neighbourId = ids.getInt(neighbour);
+
+            if (neighbourId != -1) {
+                blocks[start + degree++] = neighbourId;
+                references[neighbourId]++;
+            }
+        }
+
+        degrees[id] = degree;
+
+        if (blocksWasted > 1024 && blocksWasted > blocksUsed / 2) compact();
+    }
+
+    @Override
+    public boolean hasEdge(TElement from, TElement to) {
+        int id = ids.getInt(from);
+
+        if (id == -1) return false;
+
+        int start = blockStarts[id];
+
+        for (int i = 0; i < degrees[id]; i++) {
+            if (Objects.equals(elements[blocks[start + i]], to)) return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public Collection<TElement> getVertices() {
+        return Collections.unmodifiableSet(ids.keySet());
+    }
+
+    @Override
+    public int getStamp(TElement element) {
+        int id = ids.getInt(element);
+
+        return id == -1 ? 0 : stamps[id];
+    }
+
+    @Override
+    public void setStamp(TElement element, int stamp) {
+        int id = ids.getInt(element);
+
+        if (id != -1) stamps[id] = stamp;
+    }
+
+    @Override
+    public void clearStamps() {
+        Arrays.fill(stamps, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void copyNeighbours(int id, Collection<TElement> neighbours) {
+        int start = blockStarts[id];
+
+        for (int i = 0; i < degrees[id]; i++) {
+            neighbours.add((TElement) elements[blocks[start + i]]);
+        }
+    }
+
+    private int allocate(int size) {
+        if (blocksUsed + size > blocks.length) {
+            blocks = Arrays.copyOf(blocks, Math.max(blocks.length * 2, blocksUsed + size));
+        }
+
+        int start = blocksUsed;
+        blocksUsed += size;
+        return start;
+    }
+
+    /** Drops the references held by a vertex's block without freeing the block. */
+    private void dereferenceBlock(int id) {
+        int start = blockStarts[id];
+
+        for (int i = 0; i < degrees[id]; i++) {
+            int neighbourId = blocks[start + i];
+
+            if (--references[neighbourId] == 0 && isRemoved(neighbourId)) freeId(neighbourId);
+        }
+
+        degrees[id] = 0;
+    }
+
+    private void releaseBlock(int id) {
+        dereferenceBlock(id);
+        blocksWasted += blockSizes[id];
+        blockStarts[id] = 0;
+        blockSizes[id] = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean isRemoved(int id) {
+        Object element = elements[id];
+        return element != null && ids.getInt((TElement) element) != id;
+    }
+
+    private void freeId(int id) {
+        elements[id] = null;
+        references[id] = 0;
+        freeIds.push(id);
+    }
+
+    /** Moves every block to the front of the array, dropping the gaps left by released and regrown blocks. */
+    private void compact() {
+        int[] compacted = new int[Math.max(256, blocksUsed - blocksWasted)];
+        int used = 0;
+
+        for (int id = 0; id < nextId; id++) {
+            int size = blockSizes[id];
+
+            if (size == 0) continue;
+
+            System.arraycopy(blocks, blockStarts[id], compacted, used, degrees[id]);
+            blockStarts[id] = used;
+            used += size;
+        }
+
+        blocks = compacted;
+        blocksUsed = used;
+        blocksWasted = 0;
+    }
+
+    /** A view of a vertex's block; only valid until the storage is changed. */
+    private final class NeighbourView extends AbstractCollection<TElement> {
+        private final int start;
+        private final int degree;
+
+        private NeighbourView(int id) {
+            this.start = blockStarts[id];
+            this.degree = degrees[id];
+        }
+
+        @Override
+        public Iterator<TElement> iterator() {
+            return new Iterator<>() {
+                private int index = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return index < degree;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public TElement next() {
+                    if (index >= degree) throw new NoSuchElementException();
+
+                    return (TElement) elements[blocks[start + index++]];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return degree;
+        }
+    }
+}
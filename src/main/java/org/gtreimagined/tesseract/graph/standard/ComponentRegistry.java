@@ -0,0 +1,272 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.gtreimagined.tesseract.graph.IComponentSink;
+
+import java.lang.reflect.Array;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The components of a network, grouped by type.
+ * A component is registered under the interface it was added with and every supertype of that interface, so a
+ * component added as an {@code IEnergySink} is also found when looking for an {@code IEnergyHandler}. The supertypes of
+ * each class are only resolved once.
+ * Lookups return array snapshots that stay valid while the registry changes, so they can be iterated inside a tick
+ * without copying. A snapshot is only rebuilt the first time it's read after its type changed.
+ */
+public final class ComponentRegistry {
+
+    /** Every type a component registered under a class can be found by: the class itself and its supertypes. */
+    private static final ClassValue<Class<?>[]> LOOKUP_TYPES = new ClassValue<>() {
+        @Override
+        protected Class<?>[] computeValue(Class<?> type) {
+            Set<Class<?>> types = new LinkedHashSet<>();
+            collectTypes(type, types);
+            types.remove(Object.class);
+            return types.toArray(new Class<?>[0]);
+        }
+    };
+
+    private static final ClassValue<Object[]> EMPTY_ARRAYS = new ClassValue<>() {
+        @Override
+        protected Object[] computeValue(Class<?> type) {
+            return (Object[]) Array.newInstance(type, 0);
+        }
+    };
+
+    private final HashMap<Class<?>, Bucket> buckets = new HashMap<>();
+    /** The interfaces every component was added under. */
+    private final HashMap<Object, Set<Class<?>>> registrations = new HashMap<>();
+    private final Map<Class<?>, Collection<Object>> view = new MapView();
+
+    /** Adds every component it's given; pass this to {@link org.gtreimagined.tesseract.graph.IElement#forEachComponent}. */
+    public final IComponentSink adder = new IComponentSink() {
+        @Override
+        public <T> void accept(Class<T> iface, T impl) {
+            add(iface, impl);
+        }
+    };
+
+    /** Removes every component it's given. */
+    public final IComponentSink remover = new IComponentSink() {
+        @Override
+        public <T> void accept(Class<T> iface, T impl) {
+            remove(iface, impl);
+        }
+    };
+
+    /**
+     * Registers a component. Adding a component under an interface it was already added under does nothing. A component
+     * added under several interfaces is only gone once it was removed under each of them.
+     */
+    public <T> void add(Class<T> iface, T impl) {
+        register(iface, impl);
+    }
+
+    private void register(Class<?> iface, Object impl) {
+        if (!registrations.computeIfAbsent(impl, x -> new HashSet<>())
+                .add(iface)) return;
+
+        for (Class<?> type : LOOKUP_TYPES.get(iface)) {
+            buckets.computeIfAbsent(type, Bucket::new)
+                    .add(impl);
+        }
+    }
+
+    public <T> void remove(Class<T> iface, T impl) {
+        Set<Class<?>> interfaces = registrations.get(impl);
+
+        if (interfaces == null || !interfaces.remove(iface)) return;
+
+        if (interfaces.isEmpty()) registrations.remove(impl);
+
+        for (Class<?> type : LOOKUP_TYPES.get(iface)) {
+            Bucket bucket = buckets.get(type);
+
+            if (bucket != null && bucket.remove(impl)) {
+                buckets.remove(type);
+            }
+        }
+    }
+
+    /**
+     * Moves every component of another registry into this one, leaving it empty.
+     */
+    public void absorb(ComponentRegistry source) {
+        if (registrations.isEmpty()) {
+            // nothing to merge with, so the source's buckets can be taken over as they are
+            buckets.putAll(source.buckets);
+            registrations.putAll(source.registrations);
+        } else {
+            // components registered in both under the same interface are only counted once
+            for (Map.Entry<Object, Set<Class<?>>> entry : source.registrations.entrySet()) {
+                for (Class<?> iface : entry.getValue()) {
+                    register(iface, entry.getKey());
+                }
+            }
+        }
+
+        source.buckets.clear();
+        source.registrations.clear();
+    }
+
+    /**
+     * @return Every component that can be used as the given type. The array must not be modified, but it isn't
+     *         changed when components are added or removed later.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T[] getArray(Class<T> type) {
+        Bucket bucket = buckets.get(type);
+
+        return (T[]) (bucket == null ? EMPTY_ARRAYS.get(type) : bucket.getArray());
+    }
+
+    /**
+     * @return An unmodifiable view of {@link #getArray(Class)}.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> get(Class<T> type) {
+        Bucket bucket = buckets.get(type);
+
+        return bucket == null ? Collections.emptyList() : (List<T>) bucket.getList();
+    }
+
+    /**
+     * @return Every type that has at least one component.
+     */
+    public Set<Class<?>> getTypes() {
+        return Collections.unmodifiableSet(buckets.keySet());
+    }
+
+    /**
+     * @return A read-only view of the components of every type, shaped like the map networks used to expose.
+     */
+    public Map<Class<?>, Collection<Object>> asMap() {
+        return view;
+    }
+
+    private static void collectTypes(Class<?> type, Set<Class<?>> types) {
+        if (type == null || !types.add(type)) return;
+
+        collectTypes(type.getSuperclass(), types);
+
+        for (Class<?> iface : type.getInterfaces()) {
+            collectTypes(iface, types);
+        }
+    }
+
+    private static final class Bucket {
+        private final Class<?> type;
+        /** Under how many of the interfaces it was added under each component can be used as this type. */
+        private final Object2IntOpenHashMap<Object> counts = new Object2IntOpenHashMap<>();
+        private Object[] array = null;
+        private List<Object> list = null;
+
+        private Bucket(Class<?> type) {
+            this.type = type;
+        }
+
+        private void add(Object impl) {
+            if (counts.addTo(impl, 1) == 0) invalidate();
+        }
+
+        /**
+         * @return True if the bucket is empty now.
+         */
+        private boolean remove(Object impl) {
+            int count = counts.getInt(impl);
+
+            if (count > 1) {
+                counts.put(impl, count - 1);
+            } else if (count == 1) {
+                counts.removeInt(impl);
+                invalidate();
+            }
+
+            return counts.isEmpty();
+        }
+
+        private void invalidate() {
+            array = null;
+            list = null;
+        }
+
+        private Object[] getArray() {
+            if (array == null) {
+                array = counts.keySet()
+                        .toArray((Object[]) Array.newInstance(type, counts.size()));
+            }
+
+            return array;
+        }
+
+        private List<Object> getList() {
+            if (list == null) list = Collections.unmodifiableList(Arrays.asList(getArray()));
+
+            return list;
+        }
+    }
+
+    private final class MapView extends AbstractMap<Class<?>, Collection<Object>> {
+        private final Set<Entry<Class<?>, Collection<Object>>> entries = new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Class<?>, Collection<Object>>> iterator() {
+                Iterator<Map.Entry<Class<?>, Bucket>> iterator = buckets.entrySet()
+                        .iterator();
+
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<Class<?>, Collection<Object>> next() {
+                        Map.Entry<Class<?>, Bucket> entry = iterator.next();
+
+                        return Map.entry(entry.getKey(), entry.getValue()
+                                .getList());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return buckets.size();
+            }
+        };
+
+        @Override
+        public Collection<Object> get(Object key) {
+            Bucket bucket = buckets.get(key);
+
+            return bucket == null ? null : bucket.getList();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return buckets.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return buckets.size();
+        }
+
+        @Override
+        public Set<Entry<Class<?>, Collection<Object>>> entrySet() {
+            return entries;
+        }
+    }
+}
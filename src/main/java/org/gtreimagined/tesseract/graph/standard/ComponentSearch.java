@@ -0,0 +1,291 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Finds the clumps that were cut off when an element was removed.
+ * One breadth-first search is started from every former neighbour and the searches are stepped in lock-step. Searches
+ * that meet are merged, and a search that runs out of elements has found an entire clump. Once only one search is
+ * still running, everything left belongs to the original network, so the cost scales with the smaller clumps instead of
+ * the whole network.
+ * Searches that reach a remembered {@link SegmentIndex segment} claim it without visiting the vertices inside it, but
+ * are charged one step for every vertex of the segment, so every search still advances by the same number of vertices
+ * per step and the cost bound holds. The vertices inside a segment are only listed if their clump is split off, and the
+ * segments among the visited vertices are remembered for the next search.
+ * Instances keep their buffers between searches, so a search doesn't allocate once they've grown.
+ */
+final class ComponentSearch<TElement> {
+
+    private final GridStorage<TElement> storage;
+
+    private int[] parents = new int[8];
+    /** How many more steps each search has to sit out to pay for the segments it claimed. */
+    private int[] debts = new int[8];
+    private final List<ArrayDeque<TElement>> queues = new ArrayList<>();
+    private final List<List<TElement>> members = new ArrayList<>();
+    private final List<List<SegmentIndex.Segment<TElement>>> claimed = new ArrayList<>();
+    private final List<TElement> neighbours = new ArrayList<>();
+    private final List<List<TElement>> detached = new ArrayList<>();
+    private int count = 0;
+
+    ComponentSearch(GridStorage<TElement> storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Every vertex visited by a search is stamped with {@code firstStamp} plus the index of the search that found it,
+     * so the caller must reserve one stamp per starting element.
+     *
+     * @param segments The segments of the grid, or null to visit every vertex.
+     * @return The clumps which are no longer connected to the rest of the network, or an empty list if the starting
+     *         elements are all still connected to each other. The lists are only valid until this search is reset.
+     */
+    List<List<TElement>> findDetachedClumps(Collection<TElement> starts, int firstStamp, SegmentIndex<TElement> segments) {
+        count = starts.size();
+
+        if (parents.length < count) {
+            parents = Arrays.copyOf(parents, Math.max(count, parents.length * 2));
+            debts = new int[parents.length];
+        }
+
+        while (queues.size() < count) {
+            queues.add(new ArrayDeque<>());
+            members.add(new ArrayList<>());
+            claimed.add(new ArrayList<>());
+        }
+
+        int roots = count;
+        int i = 0;
+
+        for (TElement start : starts) {
+            parents[i] = i;
+            debts[i] = 0;
+            storage.setStamp(start, firstStamp + i);
+
+            SegmentIndex.Segment<TElement> segment = segments == null ? null : segments.get(start);
+
+            if (segment == null) {
+                queues.get(i).add(start);
+                members.get(i).add(start);
+            } else if (!claim(segment, start, i, firstStamp)) {
+                // both ends of the segment are starting points, so they're still connected through it
+                union(find(segment.stamp - firstStamp), i);
+                roots--;
+            }
+
+            i++;
+        }
+
+        while (roots > 1) {
+            int running = 0;
+            int stepped = 0;
+            int leastDebt = Integer.MAX_VALUE;
+
+            for (int search = 0; search < count && roots > 1; search++) {
+                if (parents[search] != search) continue;
+
+                if (debts[search] > 0) {
+                    // still paying for a segment
+                    running++;
+                    leastDebt = Math.min(leastDebt, --debts[search]);
+                    continue;
+                }
+
+                ArrayDeque<TElement> queue = queues.get(search);
+                if (queue.isEmpty()) continue;
+
+                running++;
+                stepped++;
+
+                TElement current = queue.removeFirst();
+                SegmentIndex.Segment<TElement> within = segments == null ? null : segments.get(current);
+
+                storage.getNeighbours(current, neighbours);
+
+                for (int n = 0; n < neighbours.size(); n++) {
+                    TElement next = neighbours.get(n);
+                    int self = find(search);
+                    SegmentIndex.Segment<TElement> segment = segments == null ? null : segments.get(next);
+
+                    if (segment != null) {
+                        // the inside of a claimed segment is never walked
+                        if (segment == within || claim(segment, next, self, firstStamp)) continue;
+
+                        int other = find(segment.stamp - firstStamp);
+
+                        if (other != self) {
+                            union(self, other);
+                            roots--;
+                        }
+                        continue;
+                    }
+
+                    int owner = storage.getStamp(next) - firstStamp;
+
+                    if (owner < 0 || owner >= count) {
+                        storage.setStamp(next, firstStamp + self);
+                        queues.get(self).add(next);
+                        members.get(self).add(next);
+                    } else {
+                        int other = find(owner);
+
+                        if (other != self) {
+                            union(self, other);
+                            roots--;
+                        }
+                    }
+                }
+
+                neighbours.clear();
+            }
+
+            // at most one search is still running; it holds the rest of the network, and every other search has
+            // finished its clump
+            if (roots <= 1 || running <= 1) break;
+
+            // every search is sitting out, so skip ahead to the first one that can move again
+            if (stepped == 0 && leastDebt > 0) {
+                for (int search = 0; search < count; search++) {
+                    if (parents[search] == search && debts[search] > 0) debts[search] -= leastDebt;
+                }
+            }
+        }
+
+        if (segments != null) learn(segments, firstStamp);
+
+        // everything met up, so nothing was split off
+        if (roots <= 1) return List.of();
+
+        int keep = -1;
+
+        for (int search = 0; search < count; search++) {
+            if (parents[search] != search) continue;
+
+            if (!queues.get(search).isEmpty() || debts[search] > 0) {
+                keep = search;
+            } else {
+                detached.add(expand(search));
+            }
+        }
+
+        if (keep == -1) {
+            // every search finished, so the biggest clump stays in the original network
+            List<TElement> biggest = null;
+
+            for (List<TElement> clump : detached) {
+                if (biggest == null || clump.size() > biggest.size()) biggest = clump;
+            }
+
+            detached.remove(biggest);
+        }
+
+        return detached;
+    }
+
+    /**
+     * Claims a segment for a search, unless another search got there first. Both ends are queued, since the search can
+     * only leave the segment through them, and the search is charged for every vertex of the segment.
+     *
+     * @param entry The end of the segment the search reached it by.
+     * @return False if the segment was already claimed.
+     */
+    private boolean claim(SegmentIndex.Segment<TElement> segment, TElement entry, int search, int firstStamp) {
+        int owner = segment.stamp - firstStamp;
+
+        if (owner >= 0 && owner < count) return false;
+
+        TElement exit = entry == segment.first() ? segment.last() : segment.first();
+
+        segment.stamp = firstStamp + search;
+        storage.setStamp(segment.first(), firstStamp + search);
+        storage.setStamp(segment.last(), firstStamp + search);
+        claimed.get(search).add(segment);
+        debts[search] += segment.size() - 1;
+
+        queues.get(search).add(entry);
+        queues.get(search).add(exit);
+        return true;
+    }
+
+    /**
+     * @return Every vertex a finished search found, including the inside of the segments it claimed.
+     */
+    private List<TElement> expand(int search) {
+        List<TElement> clump = members.get(search);
+
+        for (SegmentIndex.Segment<TElement> segment : claimed.get(search)) {
+            clump.addAll(segment.elements);
+        }
+
+        claimed.get(search).clear();
+        return clump;
+    }
+
+    /**
+     * Remembers the segments among the vertices the searches walked; only vertices stamped by some search count.
+     */
+    private void learn(SegmentIndex<TElement> segments, int firstStamp) {
+        for (int search = 0; search < count; search++) {
+            if (members.get(search).isEmpty()) continue;
+
+            segments.learn(members.get(search), element -> {
+                int owner = storage.getStamp(element) - firstStamp;
+
+                return owner >= 0 && owner < count;
+            });
+        }
+    }
+
+    /**
+     * Clears the buffers of the last search.
+     *
+     * @return False if the buffers grew too big to be worth keeping around.
+     */
+    boolean reset() {
+        int size = 0;
+
+        for (int i = 0; i < count; i++) {
+            size += members.get(i).size();
+            queues.get(i).clear();
+            members.get(i).clear();
+            claimed.get(i).clear();
+        }
+
+        detached.clear();
+        count = 0;
+
+        return size <= 4096;
+    }
+
+    private int find(int search) {
+        while (parents[search] != search) {
+            parents[search] = parents[parents[search]];
+            search = parents[search];
+        }
+
+        return search;
+    }
+
+    private void union(int a, int b) {
+        // keep the bigger search as the root so that merging is cheap
+        if (members.get(a).size() < members.get(b).size()) {
+            int tmp = a;
+            a = b;
+            b = tmp;
+        }
+
+        parents[b] = a;
+        debts[a] += debts[b];
+        debts[b] = 0;
+        queues.get(a).addAll(queues.get(b));
+        queues.get(b).clear();
+        members.get(a).addAll(members.get(b));
+        members.get(b).clear();
+        claimed.get(a).addAll(claimed.get(b));
+        claimed.get(b).clear();
+    }
+}
@@ -0,0 +1,326 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import org.gtreimagined.tesseract.graph.IElement;
+import org.gtreimagined.tesseract.graph.INotableElement;
+import org.gtreimagined.tesseract.graph.IRoutingInfo;
+import org.gtreimagined.tesseract.graph.RoutedNode;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * A grid that accepts {@link #addElement} and {@link #removeElement} from any thread, e.g. from chunk loading workers.
+ * Changes are queued and applied by a single writer as one batch when the grid is {@link #flush() flushed} or
+ * {@link #tick() ticked}, so every element and network callback runs on the flushing thread.
+ * Other threads must not touch the grid's or its networks' collections directly; they read the snapshots published
+ * after every flush and tick instead ({@link #getNetworkSnapshot()}, {@link #getElements}, {@link #getPaths}). Reading
+ * a snapshot never blocks.
+ * Everything else that changes the topology blocks until the current writer is done.
+ */
+public abstract class ConcurrentStandardGrid<TSelf extends ConcurrentStandardGrid<TSelf, TElement, TNotableElement, TRoutingInfo, TNetwork>, TElement extends IElement<TElement, TNotableElement, TRoutingInfo, TNetwork, TSelf>, TNotableElement extends INotableElement<TNotableElement, TRoutingInfo, TElement, TNetwork, TSelf>, TRoutingInfo extends IRoutingInfo<TRoutingInfo>, TNetwork extends StandardNetwork<TNetwork, TElement, TNotableElement, TRoutingInfo, TSelf>>
+        extends StandardGrid<TSelf, TElement, TNotableElement, TRoutingInfo, TNetwork> {
+
+    private final ConcurrentLinkedQueue<PendingChange<TElement>> queue = new ConcurrentLinkedQueue<>();
+    /** Held by whichever thread is currently changing the topology. */
+    private final ReentrantLock writer = new ReentrantLock();
+    private volatile Map<TNetwork, NetworkSnapshot<TElement, TNotableElement, TRoutingInfo>> snapshots = Collections.emptyMap();
+    /** Versions route snapshots of trackers that don't publish their own. */
+    private long routeVersion = 0;
+
+    protected ConcurrentStandardGrid() {
+        super();
+    }
+
+    protected ConcurrentStandardGrid(GridStorage<TElement> storage) {
+        super(storage);
+    }
+
+    /**
+     * Queues the element to be added on the next flush. Called by the writer itself, e.g. from an element callback,
+     * the element is added right away.
+     */
+    @Override
+    public void addElement(TElement element) {
+        if (writer.isHeldByCurrentThread()) {
+            super.addElement(element);
+        } else {
+            queue.add(new PendingChange<>(element, true));
+        }
+    }
+
+    /**
+     * Queues the element to be removed on the next flush. Called by the writer itself, the element is removed right
+     * away.
+     */
+    @Override
+    public void removeElement(TElement element) {
+        if (writer.isHeldByCurrentThread()) {
+            super.removeElement(element);
+        } else {
+            queue.add(new PendingChange<>(element, false));
+        }
+    }
+
+    /**
+     * Queued changes are always applied as one batch, so batches only need to be tracked for the writer.
+     */
+    @Override
+    public void beginBatch() {
+        if (writer.isHeldByCurrentThread()) super.beginBatch();
+    }
+
+    @Override
+    public void commitBatch() {
+        if (writer.isHeldByCurrentThread()) super.commitBatch();
+    }
+
+    @Override
+    public void addElementQuietly(TNetwork network, TElement element) {
+        writer.lock();
+
+        try {
+            super.addElementQuietly(network, element);
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    @Override
+    public void removeElementQuietly(TElement element) {
+        writer.lock();
+
+        try {
+            super.removeElementQuietly(element);
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    @Override
+    public void updateNeighbours(TElement element) {
+        writer.lock();
+
+        try {
+            super.updateNeighbours(element);
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    @Override
+    public void subsume(TNetwork dest, TNetwork source) {
+        writer.lock();
+
+        try {
+            super.subsume(dest, source);
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    @Override
+    public void saveTopology(Path path, ToLongFunction<TElement> ids) throws IOException {
+        writer.lock();
+
+        try {
+            super.saveTopology(path, ids);
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    @Override
+    public boolean loadTopology(Path path, LongFunction<TElement> elements) throws IOException {
+        writer.lock();
+
+        try {
+            if (!super.loadTopology(path, elements)) return false;
+
+            publish(Collections.emptySet());
+            return true;
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    /**
+     * Applies every queued change, then publishes new snapshots. Routes aren't rebuilt until the next tick, so the
+     * snapshots keep serving the previous routes until then.
+     */
+    public void flush() {
+        writer.lock();
+
+        try {
+            applyQueue();
+            publish(Collections.emptySet());
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    /**
+     * Applies every queued change and rebuilds routes, then publishes new snapshots.
+     */
+    @Override
+    public void tick() {
+        writer.lock();
+
+        try {
+            applyQueue();
+
+            Set<TNetwork> rebuilt = new HashSet<>();
+
+            for (TNetwork network : networks) {
+                if (network.isRouteUpdatePending()) rebuilt.add(network);
+            }
+
+            super.tick();
+            publish(rebuilt);
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    /**
+     * @return True if changes were queued since the last flush.
+     */
+    public boolean hasPendingChanges() {
+        return !queue.isEmpty();
+    }
+
+    /**
+     * @return Every network as of the last flush or tick.
+     */
+    public Collection<TNetwork> getNetworkSnapshot() {
+        return snapshots.keySet();
+    }
+
+    /**
+     * @return The elements of a network as of the last flush or tick, or an empty list if the network didn't exist
+     *         then.
+     */
+    public List<TElement> getElements(TNetwork network) {
+        NetworkSnapshot<TElement, TNotableElement, TRoutingInfo> snapshot = snapshots.get(network);
+
+        return snapshot == null ? List.of() : snapshot.elements();
+    }
+
+    /**
+     * @return The routes starting at a notable element of a network as of the last tick.
+     */
+    public List<RoutedNode<TNotableElement, TRoutingInfo>> getPaths(TNetwork network, TNotableElement source) {
+        NetworkSnapshot<TElement, TNotableElement, TRoutingInfo> snapshot = snapshots.get(network);
+
+        return snapshot == null ? List.of() : snapshot.routes().getPaths(source);
+    }
+
+    /**
+     * @return Every route of a network as of the last tick.
+     */
+    public RouteSnapshot<TNotableElement, TRoutingInfo> getRoutes(TNetwork network) {
+        NetworkSnapshot<TElement, TNotableElement, TRoutingInfo> snapshot = snapshots.get(network);
+
+        return snapshot == null ? RouteSnapshot.empty() : snapshot.routes();
+    }
+
+    private void applyQueue() {
+        if (queue.isEmpty()) return;
+
+        super.beginBatch();
+
+        try {
+            PendingChange<TElement> change;
+
+            while ((change = queue.poll()) != null) {
+                if (change.add()) {
+                    super.addElement(change.element());
+                } else {
+                    super.removeElement(change.element());
+                }
+            }
+        } finally {
+            super.commitBatch();
+        }
+    }
+
+    /**
+     * Replaces the snapshots of every network that changed. Unchanged networks keep their snapshot, so a flush only
+     * copies the networks it touched.
+     *
+     * @param rebuilt The networks whose routes were rebuilt since the last snapshot.
+     */
+    private void publish(Set<TNetwork> rebuilt) {
+        Map<TNetwork, NetworkSnapshot<TElement, TNotableElement, TRoutingInfo>> previous = snapshots;
+        HashMap<TNetwork, NetworkSnapshot<TElement, TNotableElement, TRoutingInfo>> next = new HashMap<>();
+
+        for (TNetwork network : networks) {
+            NetworkSnapshot<TElement, TNotableElement, TRoutingInfo> snapshot = previous.get(network);
+            int modifications = network.getModificationCount();
+            boolean elementsChanged = snapshot == null || snapshot.modifications() != modifications;
+            boolean routesChanged = rebuilt.contains(network);
+
+            if (elementsChanged || routesChanged) {
+                List<TElement> elements = elementsChanged ? List.copyOf(network.getElements()) : snapshot.elements();
+                RouteSnapshot<TNotableElement, TRoutingInfo> routes;
+
+                if (routesChanged) {
+                    routes = snapshotRoutes(network, elements);
+                } else {
+                    routes = snapshot == null ? RouteSnapshot.empty() : snapshot.routes();
+                }
+
+                snapshot = new NetworkSnapshot<>(modifications, elements, routes);
+            }
+
+            next.put(network, snapshot);
+        }
+
+        snapshots = Collections.unmodifiableMap(next);
+    }
+
+    private RouteSnapshot<TNotableElement, TRoutingInfo> snapshotRoutes(TNetwork network, List<TElement> elements) {
+        // standard trackers publish snapshots of their own
+        if (network.getTracker() instanceof StandardRouteTracker<TRoutingInfo, TNotableElement, TElement, TNetwork, TSelf> tracker) {
+            return tracker.getRouteSnapshot();
+        }
+
+        Class<TNotableElement> notableClass = network.getNotableElementClass();
+        HashMap<TNotableElement, List<RoutedNode<TNotableElement, TRoutingInfo>>> paths = new HashMap<>();
+
+        for (TElement element : elements) {
+            if (!notableClass.isInstance(element)) continue;
+
+            TNotableElement notable = notableClass.cast(element);
+            List<RoutedNode<TNotableElement, TRoutingInfo>> routes = network.getTracker()
+                    .getPaths(notable);
+
+            if (!routes.isEmpty()) paths.put(notable, routes);
+        }
+
+        return RouteSnapshot.of(++routeVersion, paths);
+    }
+
+    private record PendingChange<TElement>(TElement element, boolean add) {
+    }
+
+    /**
+     * What readers see of a network.
+     *
+     * @param modifications The {@link StandardNetwork#getModificationCount() modification count} the elements were
+     *                      copied at.
+     */
+    private record NetworkSnapshot<TElement, TNotableElement, TRoutingInfo>(int modifications, List<TElement> elements,
+                                                                           RouteSnapshot<TNotableElement, TRoutingInfo> routes) {
+    }
+}
@@ -0,0 +1,149 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.gtreimagined.tesseract.graph.IFlowSink;
+import org.gtreimagined.tesseract.graph.IFlowSource;
+import org.gtreimagined.tesseract.graph.IRoutingInfo;
+import org.gtreimagined.tesseract.graph.RoutedNode;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Distributes one kind of flow between the {@link IFlowSource sources} and {@link IFlowSink sinks} of a network, once
+ * per network tick. Offers and demands are collected once, then every source fills the sinks along its routes in route
+ * order, sending at most {@link IRoutingInfo#getCapacity()} along each route. Sources and sinks are told the totals at
+ * the end, so each of them gets one call per tick no matter how many routes they use.
+ * Which source goes first rotates every tick, so that no source is always left with the scraps.
+ * A distributor keeps scratch buffers, so it must only be used by one thread at a time.
+ */
+public class FlowDistributor<TNotableElement, TRoutingInfo extends IRoutingInfo<TRoutingInfo>> {
+
+    private final Class<? extends IFlowSource<TNotableElement>> sourceClass;
+    private final Class<? extends IFlowSink<TNotableElement>> sinkClass;
+
+    // scratch space, indexed like the sink array
+    private final Object2IntOpenHashMap<TNotableElement> firstSinks = new Object2IntOpenHashMap<>();
+    private int[] nextSinks = new int[0];
+    private long[] demands = new long[0];
+    private long[] received = new long[0];
+
+    private int rotation = 0;
+
+    /**
+     * @param sourceClass The component interface the sources are registered as.
+     * @param sinkClass   The component interface the sinks are registered as.
+     */
+    public FlowDistributor(Class<? extends IFlowSource<TNotableElement>> sourceClass, Class<? extends IFlowSink<TNotableElement>> sinkClass) {
+        this.sourceClass = sourceClass;
+        this.sinkClass = sinkClass;
+        this.firstSinks.defaultReturnValue(-1);
+    }
+
+    /**
+     * @return True if both distributors move the same kind of flow, i.e. between the same source and sink interfaces.
+     */
+    public boolean isSameKind(FlowDistributor<?, ?> other) {
+        return sourceClass == other.sourceClass && sinkClass == other.sinkClass;
+    }
+
+    /**
+     * @return A new distributor of the same kind, for a network split off of this distributor's network. Subclasses
+     *         with settings of their own should override this.
+     */
+    public FlowDistributor<TNotableElement, TRoutingInfo> copy() {
+        return new FlowDistributor<>(sourceClass, sinkClass);
+    }
+
+    /**
+     * @param components Where to find the sources and sinks.
+     * @param routes     The sorted routes of a notable element.
+     * @return How much was sent in total.
+     */
+    public long distribute(ComponentRegistry components, Function<TNotableElement, List<RoutedNode<TNotableElement, TRoutingInfo>>> routes) {
+        IFlowSource<TNotableElement>[] sources = components.getArray(sourceClass);
+        IFlowSink<TNotableElement>[] sinks = components.getArray(sinkClass);
+
+        if (sources.length == 0 || sinks.length == 0) return 0;
+
+        collectDemands(sinks);
+
+        long total = 0;
+        int first = rotation % sources.length;
+        rotation = first + 1;
+
+        try {
+            for (int i = 0; i < sources.length; i++) {
+                IFlowSource<TNotableElement> source = sources[(first + i) % sources.length];
+                long offer = source.getOffer();
+
+                if (offer <= 0) continue;
+
+                long sent = send(routes.apply(source.getFlowNode()), offer);
+
+                if (sent > 0) {
+                    source.extract(sent);
+                    total += sent;
+                }
+            }
+
+            for (int sink = 0; sink < sinks.length; sink++) {
+                if (received[sink] > 0) sinks[sink].receive(received[sink]);
+            }
+        } finally {
+            firstSinks.clear();
+        }
+
+        return total;
+    }
+
+    private void collectDemands(IFlowSink<TNotableElement>[] sinks) {
+        if (demands.length < sinks.length) {
+            int size = Math.max(sinks.length, demands.length * 2);
+            nextSinks = new int[size];
+            demands = new long[size];
+            received = new long[size];
+        }
+
+        Arrays.fill(received, 0, sinks.length, 0);
+
+        for (int sink = 0; sink < sinks.length; sink++) {
+            demands[sink] = Math.max(0, sinks[sink].getDemand());
+            // several sinks may share a node, so they're chained together
+            nextSinks[sink] = firstSinks.put(sinks[sink].getFlowNode(), sink);
+        }
+    }
+
+    /**
+     * Fills the sinks along some routes, in order.
+     *
+     * @return How much was sent.
+     */
+    private long send(List<RoutedNode<TNotableElement, TRoutingInfo>> routes, long offer) {
+        long sent = 0;
+
+        for (int i = 0; i < routes.size() && sent < offer; i++) {
+            RoutedNode<TNotableElement, TRoutingInfo> route = routes.get(i);
+            int sink = firstSinks.getInt(route.element());
+
+            if (sink < 0) continue;
+
+            long capacity = route.routeInfo()
+                    .getCapacity();
+
+            for (; sink >= 0 && sent < offer && capacity > 0; sink = nextSinks[sink]) {
+                long amount = Math.min(offer - sent, Math.min(capacity, demands[sink]));
+
+                if (amount <= 0) continue;
+
+                demands[sink] -= amount;
+                received[sink] += amount;
+                capacity -= amount;
+                sent += amount;
+            }
+        }
+
+        return sent;
+    }
+}
@@ -0,0 +1,71 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import java.util.Collection;
+
+/**
+ * Holds the vertices and cached adjacency of a {@link StandardGrid}.
+ * Only registered vertices can have edges; every edge is directed, and the grid keeps both directions in sync.
+ */
+public interface GridStorage<TElement> {
+
+    int size();
+
+    boolean contains(TElement element);
+
+    /**
+     * Registers a vertex without any edges.
+     *
+     * @return False if the vertex was already registered.
+     */
+    boolean add(TElement element);
+
+    /**
+     * Unregisters a vertex and drops its outgoing edges. Edges pointing at it are kept until their owners are updated.
+     *
+     * @param oldNeighbours Receives the former neighbours of the vertex.
+     * @return False if the vertex wasn't registered.
+     */
+    boolean remove(TElement element, Collection<TElement> oldNeighbours);
+
+    /**
+     * @return The neighbours of a vertex, or an empty collection if it isn't registered. The returned collection must
+     *         not be modified, and is only valid until the storage is changed.
+     */
+    Collection<TElement> getNeighbours(TElement element);
+
+    /**
+     * Copies the neighbours of a vertex into a collection, without allocating.
+     */
+    void getNeighbours(TElement element, Collection<TElement> neighbours);
+
+    /**
+     * Replaces the outgoing edges of a vertex. Does nothing if the vertex isn't registered.
+     *
+     * @param oldNeighbours Receives the previous neighbours of the vertex.
+     */
+    void setNeighbours(TElement element, Collection<TElement> neighbours, Collection<TElement> oldNeighbours);
+
+    boolean hasEdge(TElement from, TElement to);
+
+    /**
+     * @return A read-only view of every registered vertex.
+     */
+    Collection<TElement> getVertices();
+
+    /**
+     * Stamps are scratch marks that let walks remember which vertices they visited without allocating a set.
+     *
+     * @return The stamp of a vertex, or 0 if it was never stamped.
+     */
+    int getStamp(TElement element);
+
+    /**
+     * Stamps a registered vertex. Does nothing if the vertex isn't registered.
+     */
+    void setStamp(TElement element, int stamp);
+
+    /**
+     * Resets every stamp to 0.
+     */
+    void clearStamps();
+}
@@ -0,0 +1,145 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import org.gtreimagined.tesseract.graph.IElement;
+import org.gtreimagined.tesseract.graph.INotableElement;
+import org.gtreimagined.tesseract.graph.IRoutingInfo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Checks that the bookkeeping of a {@link StandardGrid} is consistent: the cached adjacency matches what the elements
+ * report and is symmetric, every vertex belongs to exactly one network of the grid, every network holds exactly the
+ * vertices that point at it, and every network is one connected component.
+ * This walks the whole grid, so it's meant for debugging and stress tests rather than for every tick. It must not be
+ * called during a topology update or an open batch, since the grid is allowed to be inconsistent until they're done.
+ */
+public final class GridVerifier {
+
+    /** Stops collecting problems after this many, since a broken grid tends to be broken everywhere. */
+    public static final int MAX_PROBLEMS = 100;
+
+    private GridVerifier() {
+
+    }
+
+    /**
+     * @return A description of every problem that was found, or an empty list if the grid is consistent.
+     */
+    public static <TSelf extends StandardGrid<TSelf, TElement, TNotableElement, TRoutingInfo, TNetwork>, TElement extends IElement<TElement, TNotableElement, TRoutingInfo, TNetwork, TSelf>, TNotableElement extends INotableElement<TNotableElement, TRoutingInfo, TElement, TNetwork, TSelf>, TRoutingInfo extends IRoutingInfo<TRoutingInfo>, TNetwork extends StandardNetwork<TNetwork, TElement, TNotableElement, TRoutingInfo, TSelf>> List<String> verify(StandardGrid<TSelf, TElement, TNotableElement, TRoutingInfo, TNetwork> grid) {
+        List<String> problems = new ArrayList<>();
+
+        verifyVertices(grid, problems);
+        verifyNetworks(grid, problems);
+
+        return problems;
+    }
+
+    /**
+     * @throws IllegalStateException If the grid isn't consistent.
+     */
+    public static <TSelf extends StandardGrid<TSelf, TElement, TNotableElement, TRoutingInfo, TNetwork>, TElement extends IElement<TElement, TNotableElement, TRoutingInfo, TNetwork, TSelf>, TNotableElement extends INotableElement<TNotableElement, TRoutingInfo, TElement, TNetwork, TSelf>, TRoutingInfo extends IRoutingInfo<TRoutingInfo>, TNetwork extends StandardNetwork<TNetwork, TElement, TNotableElement, TRoutingInfo, TSelf>> void check(StandardGrid<TSelf, TElement, TNotableElement, TRoutingInfo, TNetwork> grid) {
+        List<String> problems = verify(grid);
+
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("The grid is inconsistent:\n" + String.join("\n", problems));
+        }
+    }
+
+    private static <TElement extends IElement<TElement, ?, ?, TNetwork, ?>, TNetwork extends StandardNetwork<TNetwork, TElement, ?, ?, ?>> void verifyVertices(StandardGrid<?, TElement, ?, ?, TNetwork> grid, List<String> problems) {
+        GridStorage<TElement> storage = grid.storage;
+        ObjectOpenHashSet<TElement> reported = new ObjectOpenHashSet<>();
+        ObjectOpenHashSet<TElement> cached = new ObjectOpenHashSet<>();
+
+        for (TElement element : storage.getVertices()) {
+            cached.clear();
+            cached.addAll(storage.getNeighbours(element));
+
+            for (TElement neighbour : cached) {
+                if (neighbour == element) {
+                    report(problems, "Vertex " + element + " is its own neighbour");
+                } else if (!storage.contains(neighbour)) {
+                    report(problems, "Vertex " + element + " has an edge to " + neighbour + ", which isn't in the grid");
+                } else if (!storage.hasEdge(neighbour, element)) {
+                    report(problems, "Vertex " + element + " has an edge to " + neighbour + ", but not the other way around");
+                } else if (neighbour.getNetwork() != element.getNetwork()) {
+                    report(problems, "Vertices " + element + " and " + neighbour + " are adjacent, but in different networks");
+                }
+            }
+
+            // the cached edges must be what the element would report now, or an update was missed
+            reported.clear();
+            element.getNeighbours(reported);
+            reported.removeIf(neighbour -> !storage.contains(neighbour));
+
+            if (!reported.equals(cached)) {
+                report(problems, "Vertex " + element + " reports the neighbours " + reported + ", but the grid has " + cached);
+            }
+
+            TNetwork network = element.getNetwork();
+
+            if (network == null) {
+                report(problems, "Vertex " + element + " has no network");
+            } else if (!grid.networks.contains(network)) {
+                report(problems, "Vertex " + element + " is in a network that isn't in the grid");
+            } else if (!network.elements.contains(element)) {
+                report(problems, "Vertex " + element + " is in a network that doesn't contain it");
+            }
+        }
+    }
+
+    private static <TElement extends IElement<TElement, ?, ?, TNetwork, ?>, TNetwork extends StandardNetwork<TNetwork, TElement, ?, ?, ?>> void verifyNetworks(StandardGrid<?, TElement, ?, ?, TNetwork> grid, List<String> problems) {
+        GridStorage<TElement> storage = grid.storage;
+        HashSet<TElement> reached = new HashSet<>();
+        ArrayDeque<TElement> queue = new ArrayDeque<>();
+        int total = 0;
+
+        for (TNetwork network : grid.networks) {
+            if (network.elements.isEmpty()) {
+                report(problems, "A network of the grid is empty");
+                continue;
+            }
+
+            if (network.getGrid() != grid) report(problems, "A network of the grid belongs to another grid");
+
+            total += network.elements.size();
+
+            for (TElement element : network.elements) {
+                if (!storage.contains(element)) {
+                    report(problems, "Network of " + element + " contains it, but the grid doesn't");
+                } else if (element.getNetwork() != network) {
+                    report(problems, "Network of " + element + " contains it, but the element is in another network");
+                }
+            }
+
+            // every vertex of the network must be reachable from any other one
+            TElement start = network.elements.iterator()
+                    .next();
+
+            reached.clear();
+            reached.add(start);
+            queue.add(start);
+
+            while (!queue.isEmpty()) {
+                for (TElement neighbour : storage.getNeighbours(queue.removeFirst())) {
+                    if (network.elements.contains(neighbour) && reached.add(neighbour)) queue.add(neighbour);
+                }
+            }
+
+            if (reached.size() != network.elements.size()) {
+                report(problems, "Network of " + start + " isn't connected: only " + reached.size() + " of its " + network.elements.size() + " elements can be reached");
+            }
+        }
+
+        if (total != storage.size()) {
+            report(problems, "The networks hold " + total + " elements, but the grid has " + storage.size() + " vertices");
+        }
+    }
+
+    private static void report(List<String> problems, String problem) {
+        if (problems.size() < MAX_PROBLEMS) problems.add(problem);
+    }
+}
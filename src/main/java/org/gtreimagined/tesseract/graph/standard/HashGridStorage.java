@@ -0,0 +1,112 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The default grid storage, which keeps vertices in a hash map and each vertex's edges in a hash set.
+ */
+public class HashGridStorage<TElement> implements GridStorage<TElement> {
+
+    /** Every vertex, mapped to its stamp. */
+    public final Object2IntOpenHashMap<TElement> vertices = new Object2IntOpenHashMap<>();
+    public final HashMap<TElement, Set<TElement>> edges = new HashMap<>();
+
+    @Override
+    public int size() {
+        return vertices.size();
+    }
+
+    @Override
+    public boolean contains(TElement element) {
+        return vertices.containsKey(element);
+    }
+
+    @Override
+    public boolean add(TElement element) {
+        if (vertices.containsKey(element)) return false;
+
+        vertices.put(element, 0);
+        return true;
+    }
+
+    @Override
+    public boolean remove(TElement element, Collection<TElement> oldNeighbours) {
+        if (!vertices.containsKey(element)) return false;
+
+        vertices.removeInt(element);
+
+        Set<TElement> neighbours = edges.remove(element);
+
+        if (neighbours != null) oldNeighbours.addAll(neighbours);
+
+        return true;
+    }
+
+    @Override
+    public Collection<TElement> getNeighbours(TElement element) {
+        Set<TElement> neighbours = edges.get(element);
+
+        return neighbours == null ? Collections.emptySet() : neighbours;
+    }
+
+    @Override
+    public void getNeighbours(TElement element, Collection<TElement> neighbours) {
+        Set<TElement> current = edges.get(element);
+
+        if (current != null) neighbours.addAll(current);
+    }
+
+    @Override
+    public void setNeighbours(TElement element, Collection<TElement> neighbours, Collection<TElement> oldNeighbours) {
+        if (!vertices.containsKey(element)) return;
+
+        Set<TElement> current = edges.get(element);
+
+        if (current == null) {
+            if (neighbours.isEmpty()) return;
+
+            current = new HashSet<>();
+            edges.put(element, current);
+        } else {
+            oldNeighbours.addAll(current);
+            current.clear();
+        }
+
+        current.addAll(neighbours);
+    }
+
+    @Override
+    public boolean hasEdge(TElement from, TElement to) {
+        Set<TElement> neighbours = edges.get(from);
+
+        return neighbours != null && neighbours.contains(to);
+    }
+
+    @Override
+    public Collection<TElement> getVertices() {
+        return Collections.unmodifiableSet(vertices.keySet());
+    }
+
+    @Override
+    public int getStamp(TElement element) {
+        return vertices.getInt(element);
+    }
+
+    @Override
+    public void setStamp(TElement element, int stamp) {
+        vertices.replace(element, stamp);
+    }
+
+    @Override
+    public void clearStamps() {
+        for (var entry : vertices.object2IntEntrySet()) {
+            entry.setValue(0);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import org.gtreimagined.tesseract.graph.IElement;
+import org.gtreimagined.tesseract.graph.INotableElement;
+import org.gtreimagined.tesseract.graph.IRoutingInfo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A grid that keeps track of its elements by {@link IElement#getRegion() region}, e.g. by chunk.
+ * Whole regions can be loaded and unloaded in one batch, so connectivity is only recomputed once across the region's
+ * borders. Regions are flagged dirty when their elements join, leave or change neighbours, and {@link #tick()} only
+ * rebuilds the routes of networks that have elements in dirty regions instead of checking every network.
+ */
+public abstract class RegionalStandardGrid<TSelf extends RegionalStandardGrid<TSelf, TElement, TNotableElement, TRoutingInfo, TNetwork>, TElement extends IElement<TElement, TNotableElement, TRoutingInfo, TNetwork, TSelf>, TNotableElement extends INotableElement<TNotableElement, TRoutingInfo, TElement, TNetwork, TSelf>, TRoutingInfo extends IRoutingInfo<TRoutingInfo>, TNetwork extends StandardNetwork<TNetwork, TElement, TNotableElement, TRoutingInfo, TSelf>>
+        extends StandardGrid<TSelf, TElement, TNotableElement, TRoutingInfo, TNetwork> {
+
+    private final Long2ObjectOpenHashMap<ObjectOpenHashSet<TElement>> regions = new Long2ObjectOpenHashMap<>();
+    /** Regions whose elements joined, left or changed neighbours since the last tick. */
+    private final LongOpenHashSet dirtyRegions = new LongOpenHashSet();
+
+    protected RegionalStandardGrid() {
+        super();
+    }
+
+    protected RegionalStandardGrid(GridStorage<TElement> storage) {
+        super(storage);
+    }
+
+    /**
+     * Adds every element of a region at once. The elements don't have to be in the same region.
+     */
+    public void loadRegion(Collection<TElement> elements) {
+        addElements(elements);
+    }
+
+    /**
+     * Removes every element of a region at once.
+     *
+     * @return The elements that were removed.
+     */
+    public List<TElement> unloadRegion(long region) {
+        ObjectOpenHashSet<TElement> elements = regions.get(region);
+
+        if (elements == null) return List.of();
+
+        List<TElement> removed = new ArrayList<>(elements);
+        removeElements(removed);
+        return removed;
+    }
+
+    /**
+     * @return The elements of a region, or an empty set if none of them are in this grid. The set must not be
+     *         modified.
+     */
+    public Set<TElement> getElements(long region) {
+        ObjectOpenHashSet<TElement> elements = regions.get(region);
+
+        return elements == null ? Collections.emptySet() : Collections.unmodifiableSet(elements);
+    }
+
+    /**
+     * @return Every region with elements in this grid.
+     */
+    public LongSet getRegions() {
+        return LongSets.unmodifiable(regions.keySet());
+    }
+
+    public boolean isRegionDirty(long region) {
+        return dirtyRegions.contains(region);
+    }
+
+    /**
+     * Flags a region dirty, so that the routes of the networks in it are rebuilt on the next tick. Use this after
+     * calling {@link StandardRouteTracker#markDirty} on their route trackers.
+     */
+    public void markRegionDirty(long region) {
+        if (regions.containsKey(region)) dirtyRegions.add(region);
+    }
+
+    /**
+     * Only rebuilds the routes of networks with elements in dirty regions. Every topology change flags the regions of
+     * the elements it touches, so these are the only networks whose routes can be out of date. Every network is still
+     * ticked.
+     */
+    @Override
+    public void tick() {
+        ObjectOpenHashSet<TNetwork> changed = new ObjectOpenHashSet<>();
+
+        for (long region : dirtyRegions) {
+            ObjectOpenHashSet<TElement> elements = regions.get(region);
+
+            if (elements == null) continue;
+
+            for (TElement element : elements) {
+                TNetwork network = element.getNetwork();
+
+                if (network != null) changed.add(network);
+            }
+        }
+
+        dirtyRegions.clear();
+        rebuildRoutes(changed);
+
+        for (TNetwork network : networks) {
+            network.tick();
+        }
+    }
+
+    @Override
+    protected boolean schedulesRebuilds() {
+        return true;
+    }
+
+    @Override
+    public void subsume(TNetwork dest, TNetwork source) {
+        super.subsume(dest, source);
+
+        // flagging any one region of the network is enough for its routes to be rebuilt
+        if (!dest.getElements().isEmpty()) {
+            dirtyRegions.add(dest.getElements()
+                    .iterator()
+                    .next()
+                    .getRegion());
+        }
+    }
+
+    @Override
+    protected void onVertexAdded(TElement element) {
+        long region = element.getRegion();
+
+        regions.computeIfAbsent(region, x -> new ObjectOpenHashSet<>())
+                .add(element);
+        dirtyRegions.add(region);
+    }
+
+    @Override
+    protected void onVertexRemoved(TElement element) {
+        long region = element.getRegion();
+        ObjectOpenHashSet<TElement> elements = regions.get(region);
+
+        if (elements == null || !elements.remove(element)) return;
+
+        if (elements.isEmpty()) {
+            regions.remove(region);
+            dirtyRegions.remove(region);
+        } else {
+            dirtyRegions.add(region);
+        }
+    }
+
+    @Override
+    protected void onAdjacencyChanged(TElement element) {
+        dirtyRegions.add(element.getRegion());
+    }
+}
@@ -0,0 +1,128 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import org.gtreimagined.tesseract.graph.RoutedNode;
+
+import java.util.Arrays;
+
+/**
+ * Interns the routes of a tracker, so that equal routes and routing infos are only kept once and route tables can
+ * refer to routes by index.
+ * The pool counts how often the latest {@link RouteSnapshot} uses each route, so a snapshot only has to count the
+ * routes it replaces. Unused routes are dropped once they make up most of the pool. Dropping routes moves the
+ * survivors to a new table, so the tables of older snapshots never change under them.
+ */
+final class RoutePool<TNotableElement, TRoutingInfo> {
+
+    private final Object2IntOpenHashMap<RoutedNode<TNotableElement, TRoutingInfo>> indices = new Object2IntOpenHashMap<>();
+    private final Object2ObjectOpenHashMap<TRoutingInfo, TRoutingInfo> infos = new Object2ObjectOpenHashMap<>();
+    private RoutedNode<TNotableElement, TRoutingInfo>[] nodes;
+    /** How often the latest snapshot uses every route. */
+    private int[] uses = new int[16];
+    private int size = 0;
+    /** How many routes are used at least once. */
+    private int live = 0;
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    RoutePool() {
+        this.nodes = new RoutedNode[16];
+        this.indices.defaultReturnValue(-1);
+    }
+
+    /**
+     * @return The interned copy of a route.
+     */
+    RoutedNode<TNotableElement, TRoutingInfo> intern(RoutedNode<TNotableElement, TRoutingInfo> node) {
+        // indexOf may grow the table, so it has to be read afterwards
+        int index = indexOf(node);
+
+        return nodes[index];
+    }
+
+    /**
+     * Interns a route. New routes start out unused.
+     *
+     * @return The index of the route in {@link #getNodes()}.
+     */
+    int indexOf(RoutedNode<TNotableElement, TRoutingInfo> node) {
+        int index = indices.getInt(node);
+
+        if (index >= 0) return index;
+
+        TRoutingInfo info = infos.putIfAbsent(node.routeInfo(), node.routeInfo());
+
+        if (info != null && info != node.routeInfo()) node = new RoutedNode<>(node.element(), info);
+
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            uses = Arrays.copyOf(uses, size * 2);
+        }
+
+        index = size++;
+        nodes[index] = node;
+        indices.put(node, index);
+        return index;
+    }
+
+    /**
+     * Counts one more use of a route.
+     */
+    void retain(int index) {
+        if (uses[index]++ == 0) live++;
+    }
+
+    /**
+     * Counts one less use of a route. Routes without uses may be dropped by the next {@link #trim()}.
+     */
+    void release(int index) {
+        if (--uses[index] == 0) live--;
+    }
+
+    /**
+     * Drops the unused routes, if they make up most of the pool.
+     *
+     * @return The new index of every old index, or -1 for dropped routes; null if nothing was dropped.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    int[] trim() {
+        if (size <= live * 2 + 64) return null;
+
+        int[] remap = new int[size];
+        RoutedNode<TNotableElement, TRoutingInfo>[] kept = new RoutedNode[Math.max(16, live * 2)];
+        int[] keptUses = new int[kept.length];
+        int count = 0;
+
+        indices.clear();
+        infos.clear();
+
+        for (int i = 0; i < size; i++) {
+            if (uses[i] == 0) {
+                remap[i] = -1;
+                continue;
+            }
+
+            RoutedNode<TNotableElement, TRoutingInfo> node = nodes[i];
+
+            remap[i] = count;
+            kept[count] = node;
+            keptUses[count] = uses[i];
+            indices.put(node, count);
+            infos.putIfAbsent(node.routeInfo(), node.routeInfo());
+            count++;
+        }
+
+        nodes = kept;
+        uses = keptUses;
+        size = count;
+        return remap;
+    }
+
+    /**
+     * @return The route table. Routes are only ever appended to it, and it's replaced instead of changed when routes
+     *         are dropped.
+     */
+    RoutedNode<TNotableElement, TRoutingInfo>[] getNodes() {
+        return nodes;
+    }
+}
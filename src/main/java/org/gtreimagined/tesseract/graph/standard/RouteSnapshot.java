@@ -0,0 +1,277 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.gtreimagined.tesseract.graph.RoutedNode;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * An immutable copy of the routes of a network, as of one route rebuild.
+ * The routes of every source are stored back to back in one flat array of indices into a table of interned routes, so
+ * a snapshot is compact and can be iterated from any thread without copying or locking:
+ * <pre>{@code
+ * int source = snapshot.indexOf(element);
+ * for (int i = snapshot.getStart(source); i < snapshot.getEnd(source); i++) {
+ *     RoutedNode<...> route = snapshot.getRoute(i);
+ * }
+ * }</pre>
+ * Each rebuild publishes a new snapshot with a higher version, so anything derived from a snapshot can be cached until
+ * the version changes.
+ */
+public final class RouteSnapshot<TNotableElement, TRoutingInfo> {
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final RouteSnapshot EMPTY = new RouteSnapshot<>(0, newIndices(0), new Object[0], new int[] {0}, new RoutedNode[0], new int[0]);
+
+    private final long version;
+    private final Object2IntOpenHashMap<TNotableElement> indices;
+    private final Object[] sources;
+    /** The routes of source {@code i} are {@code routes[offsets[i]]} up to {@code routes[offsets[i + 1]]}. */
+    private final int[] offsets;
+    /** Every distinct route; shared with the snapshots before and after this one where possible. */
+    private final RoutedNode<TNotableElement, TRoutingInfo>[] nodes;
+    /** Indices into {@link #nodes}. */
+    private final int[] routes;
+
+    private RouteSnapshot(long version, Object2IntOpenHashMap<TNotableElement> indices, Object[] sources, int[] offsets, RoutedNode<TNotableElement, TRoutingInfo>[] nodes, int[] routes) {
+        this.version = version;
+        this.indices = indices;
+        this.sources = sources;
+        this.offsets = offsets;
+        this.nodes = nodes;
+        this.routes = routes;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <TNotableElement, TRoutingInfo> RouteSnapshot<TNotableElement, TRoutingInfo> empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Copies a map of routes. Sources without routes are left out, and equal routes are only stored once.
+     */
+    public static <TNotableElement, TRoutingInfo> RouteSnapshot<TNotableElement, TRoutingInfo> of(long version, Map<TNotableElement, ? extends List<RoutedNode<TNotableElement, TRoutingInfo>>> paths) {
+        return update(empty(), version, paths, paths.keySet(), new RoutePool<>());
+    }
+
+    /**
+     * Builds the snapshot that follows another one. Only the routes of the changed sources are interned again; the
+     * routes of every other source are copied over from the previous snapshot as they are, so a rebuild that changed a
+     * few sources doesn't cost as much as copying every route.
+     *
+     * @param previous The latest snapshot built with the pool.
+     * @param paths    The routes of every source. Sources without routes are left out.
+     * @param changed  The sources whose routes may differ from the previous snapshot, including sources that gained or
+     *                 lost all of their routes. The routes of every other source must be the same as before.
+     * @param pool     Interns the routes, so that routes which didn't change are shared with the previous snapshot.
+     */
+    static <TNotableElement, TRoutingInfo> RouteSnapshot<TNotableElement, TRoutingInfo> update(RouteSnapshot<TNotableElement, TRoutingInfo> previous, long version, Map<TNotableElement, ? extends List<RoutedNode<TNotableElement, TRoutingInfo>>> paths, Set<TNotableElement> changed, RoutePool<TNotableElement, TRoutingInfo> pool) {
+        int previousCount = previous.sources.length;
+        boolean[] replaced = new boolean[previousCount];
+        List<TNotableElement> added = new ArrayList<>();
+        int removed = 0;
+        int routeCount = previous.routes.length;
+
+        for (TNotableElement source : changed) {
+            int index = previous.indexOf(source);
+            List<RoutedNode<TNotableElement, TRoutingInfo>> list = paths.get(source);
+            int size = list == null ? 0 : list.size();
+
+            if (index >= 0) {
+                replaced[index] = true;
+                routeCount -= previous.offsets[index + 1] - previous.offsets[index];
+
+                for (int i = previous.offsets[index]; i < previous.offsets[index + 1]; i++) {
+                    pool.release(previous.routes[i]);
+                }
+
+                if (size == 0) removed++;
+            } else if (size > 0) {
+                added.add(source);
+            }
+
+            routeCount += size;
+        }
+
+        int sourceCount = previousCount - removed + added.size();
+        // the sources keep their order, so the index can be shared if none came or went
+        boolean sameSources = removed == 0 && added.isEmpty();
+        Object2IntOpenHashMap<TNotableElement> indices = sameSources ? previous.indices : newIndices(sourceCount);
+        Object[] sources = sameSources ? previous.sources : new Object[sourceCount];
+        int[] offsets = new int[sourceCount + 1];
+        int[] routes = new int[routeCount];
+        int source = 0;
+        int route = 0;
+
+        for (int i = 0; i < previousCount; ) {
+            if (replaced[i]) {
+                TNotableElement key = previous.getSource(i++);
+                List<RoutedNode<TNotableElement, TRoutingInfo>> list = paths.get(key);
+
+                if (list == null || list.isEmpty()) continue;
+
+                if (!sameSources) {
+                    indices.put(key, source);
+                    sources[source] = key;
+                }
+
+                offsets[source++] = route;
+                route = encode(list, routes, route, pool);
+                continue;
+            }
+
+            // a run of unchanged sources is copied in one go
+            int end = i + 1;
+
+            while (end < previousCount && !replaced[end]) end++;
+
+            int from = previous.offsets[i];
+
+            System.arraycopy(previous.routes, from, routes, route, previous.offsets[end] - from);
+
+            for (; i < end; i++) {
+                if (!sameSources) {
+                    indices.put(previous.getSource(i), source);
+                    sources[source] = previous.sources[i];
+                }
+
+                offsets[source++] = previous.offsets[i] - from + route;
+            }
+
+            route += previous.offsets[end] - from;
+        }
+
+        for (TNotableElement key : added) {
+            indices.put(key, source);
+            sources[source] = key;
+            offsets[source++] = route;
+            route = encode(paths.get(key), routes, route, pool);
+        }
+
+        offsets[sourceCount] = route;
+
+        int[] remap = pool.trim();
+
+        if (remap != null) {
+            for (int i = 0; i < routes.length; i++) {
+                routes[i] = remap[routes[i]];
+            }
+        }
+
+        return new RouteSnapshot<>(version, indices, sources, offsets, pool.getNodes(), routes);
+    }
+
+    /**
+     * Interns the routes of a source into a route table.
+     *
+     * @return The position after the last route.
+     */
+    private static <TNotableElement, TRoutingInfo> int encode(List<RoutedNode<TNotableElement, TRoutingInfo>> list, int[] routes, int route, RoutePool<TNotableElement, TRoutingInfo> pool) {
+        for (int i = 0; i < list.size(); i++) {
+            int index = pool.indexOf(list.get(i));
+
+            pool.retain(index);
+            routes[route++] = index;
+        }
+
+        return route;
+    }
+
+    /**
+     * @return An empty map from sources to their index, which returns -1 for missing sources.
+     */
+    private static <TNotableElement> Object2IntOpenHashMap<TNotableElement> newIndices(int expected) {
+        Object2IntOpenHashMap<TNotableElement> indices = new Object2IntOpenHashMap<>(expected);
+        indices.defaultReturnValue(-1);
+        return indices;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The number of sources with at least one route.
+     */
+    public int size() {
+        return sources.length;
+    }
+
+    /**
+     * @return The index of a source, or -1 if it has no routes.
+     */
+    public int indexOf(TNotableElement source) {
+        return indices.getInt(source);
+    }
+
+    @SuppressWarnings("unchecked")
+    public TNotableElement getSource(int index) {
+        return (TNotableElement) sources[index];
+    }
+
+    /**
+     * @return The position of the first route of a source.
+     */
+    public int getStart(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * @return The position after the last route of a source.
+     */
+    public int getEnd(int index) {
+        return offsets[index + 1];
+    }
+
+    public RoutedNode<TNotableElement, TRoutingInfo> getRoute(int position) {
+        return nodes[routes[position]];
+    }
+
+    /**
+     * @return An id of the route at a position, equal for equal routes. Ids are only stable for one version, but
+     *         usually survive rebuilds that don't change the route.
+     */
+    public int getRouteId(int position) {
+        return routes[position];
+    }
+
+    /**
+     * @return The sorted routes of a source, as an unmodifiable view.
+     */
+    public List<RoutedNode<TNotableElement, TRoutingInfo>> getPaths(TNotableElement source) {
+        int index = indexOf(source);
+
+        return index < 0 ? List.of() : new RouteList<>(nodes, routes, offsets[index], offsets[index + 1]);
+    }
+
+    private static final class RouteList<T> extends AbstractList<T> implements RandomAccess {
+        private final T[] nodes;
+        private final int[] routes;
+        private final int start;
+        private final int end;
+
+        private RouteList(T[] nodes, int[] routes, int start, int end) {
+            this.nodes = nodes;
+            this.routes = routes;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= end - start) throw new IndexOutOfBoundsException(index);
+
+            return nodes[routes[start + index]];
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+    }
+}
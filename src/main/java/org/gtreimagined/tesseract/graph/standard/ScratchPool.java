@@ -0,0 +1,35 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import java.util.ArrayList;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Hands out reusable scratch objects so that topology updates don't allocate.
+ * Objects must be released in the reverse order they were acquired; reentrant calls simply get their own instance.
+ */
+final class ScratchPool<T> {
+
+    private final Supplier<T> factory;
+    /** Clears an object before it's reused, and returns false if it grew too big to be worth keeping. */
+    private final Predicate<T> reset;
+    private final ArrayList<T> pool = new ArrayList<>();
+    private int depth = 0;
+
+    ScratchPool(Supplier<T> factory, Predicate<T> reset) {
+        this.factory = factory;
+        this.reset = reset;
+    }
+
+    T acquire() {
+        if (depth == pool.size()) pool.add(factory.get());
+
+        return pool.get(depth++);
+    }
+
+    void release(T scratch) {
+        depth--;
+
+        if (!reset.test(scratch)) pool.set(depth, factory.get());
+    }
+}
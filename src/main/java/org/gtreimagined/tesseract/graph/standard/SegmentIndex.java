@@ -0,0 +1,208 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Remembers the segments of a grid: runs of vertices whose inner vertices have exactly two neighbours, such as straight
+ * pipe lines. The ends of a segment may have any number of neighbours, so the only ways out of a segment are at its
+ * ends, and a split search can take a segment in one step instead of visiting every vertex.
+ * Segments are only learned from vertices that a split search visited anyway, so finding them never costs more than
+ * the search did. They're forgotten in constant time when their inside changes.
+ */
+final class SegmentIndex<TElement> {
+
+    /** Shorter runs are cheaper to walk than to remember. */
+    static final int MIN_LENGTH = 4;
+
+    private final GridStorage<TElement> storage;
+    /** Forgotten segments are only dropped from here when one of their vertices is looked up. */
+    private final HashMap<TElement, Segment<TElement>> segments = new HashMap<>();
+    private final ObjectOpenHashSet<TElement> seen = new ObjectOpenHashSet<>();
+    private final ArrayList<TElement> before = new ArrayList<>();
+    private final ArrayList<TElement> after = new ArrayList<>();
+
+    SegmentIndex(GridStorage<TElement> storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * @return The segment a vertex is in, or null if it isn't in a remembered segment. This never walks the grid.
+     */
+    Segment<TElement> get(TElement element) {
+        Segment<TElement> segment = segments.get(element);
+
+        if (segment != null && !segment.valid) {
+            segments.remove(element);
+            return null;
+        }
+
+        return segment;
+    }
+
+    /**
+     * Remembers the segments among vertices that were just walked. Runs are cut off where the walk stopped, so this
+     * only looks at every walked vertex a few times.
+     *
+     * @param walked Tells whether a vertex was walked.
+     */
+    void learn(Collection<TElement> visited, Predicate<TElement> walked) {
+        try {
+            for (TElement element : visited) {
+                if (seen.contains(element) || !isInner(element, walked) || get(element) != null) continue;
+
+                learnRun(element, walked);
+            }
+        } finally {
+            seen.clear();
+            before.clear();
+            after.clear();
+        }
+    }
+
+    private void learnRun(TElement element, Predicate<TElement> walked) {
+        boolean first = true;
+
+        seen.add(element);
+
+        for (TElement neighbour : storage.getNeighbours(element)) {
+            List<TElement> members = first ? before : after;
+            TElement previous = element;
+            TElement current = neighbour;
+
+            first = false;
+
+            while (current != element && walked.test(current) && !seen.contains(current) && get(current) == null) {
+                members.add(current);
+                seen.add(current);
+
+                // the ends of a run don't need to have two neighbours, but they can't be walked past
+                if (!isInner(current, walked)) break;
+
+                TElement next = null;
+
+                for (TElement candidate : storage.getNeighbours(current)) {
+                    if (candidate != previous) next = candidate;
+                }
+
+                previous = current;
+                current = next;
+            }
+
+            // closed loops have no ends to leave them by, so they're not segments
+            if (current == element) {
+                before.clear();
+                after.clear();
+                return;
+            }
+        }
+
+        int length = before.size() + 1 + after.size();
+
+        if (length >= MIN_LENGTH) {
+            List<TElement> elements = new ArrayList<>(length);
+            Collections.reverse(before);
+            elements.addAll(before);
+            elements.add(element);
+            elements.addAll(after);
+
+            Segment<TElement> segment = new Segment<>(elements);
+
+            for (TElement member : elements) {
+                segments.put(member, segment);
+            }
+        }
+
+        before.clear();
+        after.clear();
+    }
+
+    /**
+     * Called when the edges of a vertex changed. The segment is forgotten if the vertex is inside it, or lost an edge to
+     * another vertex of the segment; the ends of a segment may gain and lose other edges freely.
+     */
+    void onEdgesChanged(TElement element, Collection<TElement> removedNeighbours) {
+        Segment<TElement> segment = get(element);
+
+        if (segment == null) return;
+
+        if (!segment.isEnd(element)) {
+            segment.valid = false;
+            return;
+        }
+
+        for (TElement neighbour : removedNeighbours) {
+            if (segments.get(neighbour) == segment) {
+                segment.valid = false;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Forgets the segment a vertex is in. Call this when the vertex is removed.
+     */
+    void forget(TElement element) {
+        Segment<TElement> segment = segments.remove(element);
+
+        if (segment != null) segment.valid = false;
+    }
+
+    void clear() {
+        for (Segment<TElement> segment : segments.values()) {
+            segment.valid = false;
+        }
+
+        segments.clear();
+    }
+
+    /**
+     * Resets the search stamps of every segment, along with {@link GridStorage#clearStamps}.
+     */
+    void clearStamps() {
+        for (Segment<TElement> segment : segments.values()) {
+            segment.stamp = 0;
+        }
+    }
+
+    private boolean isInner(TElement element, Predicate<TElement> walked) {
+        return walked.test(element) && storage.getNeighbours(element)
+                .size() == 2;
+    }
+
+    /**
+     * The vertices of a segment, in order from one end to the other.
+     */
+    static final class Segment<TElement> {
+        final List<TElement> elements;
+        /** The stamp of the split search that claimed this segment, like {@link GridStorage#getStamp}. */
+        int stamp = 0;
+        boolean valid = true;
+
+        private Segment(List<TElement> elements) {
+            this.elements = elements;
+        }
+
+        TElement first() {
+            return elements.get(0);
+        }
+
+        TElement last() {
+            return elements.get(elements.size() - 1);
+        }
+
+        boolean isEnd(TElement element) {
+            return element == first() || element == last();
+        }
+
+        int size() {
+            return elements.size();
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import org.gtreimagined.tesseract.graph.IElement;
+import org.gtreimagined.tesseract.graph.IGrid;
+import org.gtreimagined.tesseract.graph.INetwork;
+import org.gtreimagined.tesseract.graph.INotableElement;
+import org.gtreimagined.tesseract.graph.IRouteTracker;
+import org.gtreimagined.tesseract.graph.IRoutingInfo;
+import org.gtreimagined.tesseract.graph.RoutedNode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A route tracker that finds routes itself instead of asking {@link INotableElement#getRoutedNeighbours()}.
+ * Routes are found with a shortest-path search over the grid's adjacency, starting at every notable element and
+ * stopping at the first route boundary on each path. The cost of a route is built by merging the routing info of each
+ * step with {@link IRoutingInfo#merge}, so merging must never make a route cheaper.
+ * Networks that aren't managed by a grid fall back to {@link INotableElement#getRoutedNeighbours()}.
+ * Trackers can also {@link #contractsChains() contract chains}, so that searches skip over runs of plain pipes in one
+ * step instead of visiting every pipe.
+ */
+public abstract class ShortestPathRouteTracker<TRoutingInfo extends IRoutingInfo<TRoutingInfo>, TNotableElement extends INotableElement<TNotableElement, TRoutingInfo, TElement, TNetwork, TGrid>, TElement extends IElement<TElement, TNotableElement, TRoutingInfo, TNetwork, TGrid>, TNetwork extends INetwork<TNetwork, TElement, TNotableElement, TRoutingInfo, TGrid>, TGrid extends IGrid<TGrid, TElement, TNotableElement, TRoutingInfo, TNetwork>> extends StandardRouteTracker<TRoutingInfo, TNotableElement, TElement, TNetwork, TGrid> {
+
+    // scratch space, shared between the searches of a rebuild
+    private final HashMap<TElement, TRoutingInfo> bestCosts = new HashMap<>();
+    private final HashSet<TElement> settled = new HashSet<>();
+    private final PriorityQueue<RoutedNode<TElement, TRoutingInfo>> frontier = new PriorityQueue<>((a, b) -> compareCost(a.routeInfo(), b.routeInfo()));
+
+    /** The contracted chain of every chain element that was searched through since it last changed. */
+    private final HashMap<TElement, Chain<TElement, TRoutingInfo>> chains = new HashMap<>();
+    /** Chains are in use by background rebuilds, so they're only invalidated once those are done. */
+    private final List<TElement> deferredInvalidations = new ArrayList<>();
+    private boolean clearChainsLater = false;
+
+    protected ShortestPathRouteTracker() {
+        super();
+    }
+
+    /**
+     * Creates a lazy tracker; see {@link StandardRouteTracker#StandardRouteTracker(int)}.
+     */
+    protected ShortestPathRouteTracker(int cacheCapacity) {
+        super(cacheCapacity);
+    }
+
+    /**
+     * With {@link #setAsyncRebuilds async rebuilds}, this is called from the rebuild executor, so it must only read
+     * state that doesn't change while the world is running.
+     *
+     * @return The routing info for moving from one element to an adjacent one, or null if routes can't take this step.
+     */
+    protected abstract TRoutingInfo getStepInfo(TElement from, TElement to);
+
+    /**
+     * Orders two route costs; the cheapest route comes first.
+     */
+    protected abstract int compareCost(TRoutingInfo a, TRoutingInfo b);
+
+    /**
+     * @return False if a route with this cost is too long to be used. Searches don't continue past such routes.
+     */
+    protected boolean isWithinBound(TRoutingInfo cost) {
+        return true;
+    }
+
+    /**
+     * Chain contraction collapses every run of elements with exactly two neighbours that aren't route boundaries into a
+     * single edge between the elements at either end, with the merged routing info of the whole run. The merged info
+     * is kept until something in or next to the run changes, so searches cost about as much as the network has
+     * junctions instead of pipes.
+     * This only finds the same routes if {@link IRoutingInfo#merge} is associative and {@link #isWithinBound} never
+     * accepts a route after rejecting a cheaper one. If step info changes without the topology changing, call
+     * {@link #markChainDirty} or {@link #markAllDirty}.
+     *
+     * @return True to contract chains. Disabled by default.
+     */
+    protected boolean contractsChains() {
+        return false;
+    }
+
+    /**
+     * Forgets the merged routing info of the chain an element is in, or of the chains next to it.
+     */
+    public void markChainDirty(TElement element) {
+        invalidateChain(element);
+
+        TGrid grid = network == null ? null : network.getGrid();
+
+        if (grid != null) {
+            for (TElement neighbour : grid.getAdjacent(element)) {
+                invalidateChain(neighbour);
+            }
+        }
+    }
+
+    @Override
+    public void markAllDirty() {
+        super.markAllDirty();
+
+        if (isRebuildingInBackground()) {
+            clearChainsLater = true;
+        } else {
+            chains.clear();
+        }
+    }
+
+    @Override
+    public void onElementAdded(TElement source) {
+        super.onElementAdded(source);
+        if (isRebuildingInBackground() || !chains.isEmpty()) markChainDirty(source);
+    }
+
+    @Override
+    public void onElementRemoved(TElement element) {
+        super.onElementRemoved(element);
+        if (isRebuildingInBackground() || !chains.isEmpty()) invalidateChain(element);
+    }
+
+    @Override
+    public void onAdjacencyChanged(TElement element) {
+        super.onAdjacencyChanged(element);
+        if (isRebuildingInBackground() || !chains.isEmpty()) markChainDirty(element);
+    }
+
+    @Override
+    public void absorb(IRouteTracker<TRoutingInfo, TNotableElement, TElement, TNetwork, TGrid> source, Collection<TElement> elements) {
+        // the absorbed network's chains didn't change, so they're still valid, unless either side is searching
+        // through them in the background
+        if (source instanceof ShortestPathRouteTracker<TRoutingInfo, TNotableElement, TElement, TNetwork, TGrid> other && !isRebuildingInBackground() && !other.isRebuildingInBackground()) {
+            chains.putAll(other.chains);
+            other.chains.clear();
+        }
+
+        super.absorb(source, elements);
+    }
+
+    @Override
+    protected void onBackgroundRebuildFinished() {
+        if (clearChainsLater) {
+            chains.clear();
+        } else {
+            for (TElement element : deferredInvalidations) {
+                invalidateChain(element);
+            }
+        }
+
+        clearChainsLater = false;
+        deferredInvalidations.clear();
+    }
+
+    private void invalidateChain(TElement element) {
+        if (isRebuildingInBackground()) {
+            if (!clearChainsLater) deferredInvalidations.add(element);
+            return;
+        }
+
+        Chain<TElement, TRoutingInfo> chain = chains.get(element);
+
+        if (chain == null) return;
+
+        for (TElement member : chain.elements) {
+            chains.remove(member);
+        }
+    }
+
+    /**
+     * Searches only read the topology through {@link #getAdjacent}. Networks that aren't managed by a grid never rebuild
+     * in the background, so the fallback to {@link INotableElement#getRoutedNeighbours()} doesn't count.
+     */
+    @Override
+    protected boolean supportsAsyncRebuilds() {
+        return true;
+    }
+
+    @Override
+    public int sort(RoutedNode<TNotableElement, TRoutingInfo> a, RoutedNode<TNotableElement, TRoutingInfo> b) {
+        return compareCost(a.routeInfo(), b.routeInfo());
+    }
+
+    @Override
+    protected List<RoutedNode<TNotableElement, TRoutingInfo>> makePaths(TNotableElement source) {
+        TGrid grid = network == null ? null : network.getGrid();
+
+        if (grid == null) return super.makePaths(source);
+
+        TElement start = network.getElementClass()
+                .cast(source);
+        List<RoutedNode<TNotableElement, TRoutingInfo>> paths = new ArrayList<>();
+        boolean contract = contractsChains();
+
+        try {
+            for (TElement next : getAdjacent(start)) {
+                if (contract && isChainElement(next)) {
+                    offerChain(start, next, null);
+                } else {
+                    offer(next, getStepInfo(start, next));
+                }
+            }
+
+            settled.add(start);
+
+            while (!frontier.isEmpty()) {
+                RoutedNode<TElement, TRoutingInfo> step = frontier.poll();
+                TElement current = step.element();
+
+                if (!settled.add(current)) continue;
+
+                if (isRouteBoundary(current)) {
+                    // routes end at the first notable element they reach
+                    if (getNotableElementClass().isInstance(current)) {
+                        paths.add(new RoutedNode<>(getNotableElementClass().cast(current), step.routeInfo()));
+                    }
+                    continue;
+                }
+
+                for (TElement next : getAdjacent(current)) {
+                    if (settled.contains(next)) continue;
+
+                    if (contract && isChainElement(next)) {
+                        offerChain(current, next, step.routeInfo());
+                        continue;
+                    }
+
+                    TRoutingInfo stepInfo = getStepInfo(current, next);
+
+                    if (stepInfo != null) {
+                        offer(next, step.routeInfo()
+                                .merge(stepInfo));
+                    }
+                }
+            }
+        } finally {
+            bestCosts.clear();
+            settled.clear();
+            frontier.clear();
+        }
+
+        // the search already finds routes in order, but subclasses may sort differently
+        paths.sort(this::sort);
+        return paths;
+    }
+
+    private boolean isChainElement(TElement element) {
+        return getAdjacent(element)
+                .size() == 2 && !isRouteBoundary(element);
+    }
+
+    /**
+     * Skips from an element over the chain that starts at one of its neighbours, to the element at the other end.
+     *
+     * @param cost The cost of the route up to the element, or null if the element is where the route starts.
+     */
+    private void offerChain(TElement from, TElement first, TRoutingInfo cost) {
+        Chain<TElement, TRoutingInfo> chain = chains.get(first);
+
+        if (chain == null) chain = contractChain(first);
+
+        // a closed loop of chain elements can't be entered from outside
+        if (chain.head == null) return;
+
+        boolean forward = first == chain.elements.get(0) && from == chain.head;
+        TElement end = forward ? chain.tail : chain.head;
+        TRoutingInfo chainCost = forward ? chain.forwardCost : chain.backwardCost;
+
+        if (chainCost == null || settled.contains(end)) return;
+
+        offer(end, cost == null ? chainCost : cost.merge(chainCost));
+    }
+
+    /**
+     * Walks both ways from a chain element to the ends of its chain, then merges the step info along the chain in both
+     * directions.
+     */
+    private Chain<TElement, TRoutingInfo> contractChain(TElement element) {
+        ArrayList<TElement> before = new ArrayList<>();
+        ArrayList<TElement> after = new ArrayList<>();
+        List<TElement> ends = new ArrayList<>(2);
+
+        for (TElement neighbour : getAdjacent(element)) {
+            List<TElement> members = ends.isEmpty() ? before : after;
+            TElement previous = element;
+            TElement current = neighbour;
+
+            while (current != element && isChainElement(current)) {
+                members.add(current);
+
+                TElement next = null;
+
+                for (TElement candidate : getAdjacent(current)) {
+                    if (candidate != previous) next = candidate;
+                }
+
+                previous = current;
+                current = next;
+            }
+
+            ends.add(current);
+        }
+
+        List<TElement> elements = new ArrayList<>(before.size() + 1 + after.size());
+        Collections.reverse(before);
+        elements.addAll(before);
+        elements.add(element);
+        elements.addAll(after);
+
+        Chain<TElement, TRoutingInfo> chain;
+
+        if (ends.get(0) == element) {
+            chain = new Chain<>(elements, null, null, null, null);
+        } else {
+            TElement head = ends.get(0);
+            TElement tail = ends.get(1);
+
+            chain = new Chain<>(elements, head, tail, mergeSteps(head, elements, tail, false), mergeSteps(tail, elements, head, true));
+        }
+
+        for (TElement member : elements) {
+            chains.put(member, chain);
+        }
+
+        return chain;
+    }
+
+    /**
+     * @return The merged step info from one end of a chain to the other, or null if any step is impassable.
+     */
+    private TRoutingInfo mergeSteps(TElement from, List<TElement> elements, TElement to, boolean reverse) {
+        TElement previous = from;
+        TRoutingInfo cost = null;
+
+        for (int i = 0; i <= elements.size(); i++) {
+            TElement current = i == elements.size() ? to : elements.get(reverse ? elements.size() - 1 - i : i);
+            TRoutingInfo stepInfo = getStepInfo(previous, current);
+
+            if (stepInfo == null) return null;
+
+            cost = cost == null ? stepInfo : cost.merge(stepInfo);
+            previous = current;
+        }
+
+        return cost;
+    }
+
+    private void offer(TElement element, TRoutingInfo cost) {
+        if (cost == null || !isWithinBound(cost)) return;
+
+        TRoutingInfo best = bestCosts.get(element);
+
+        if (best != null && compareCost(best, cost) <= 0) return;
+
+        bestCosts.put(element, cost);
+        frontier.add(new RoutedNode<>(element, cost));
+    }
+
+    /**
+     * A run of chain elements between two other elements, with the merged routing info from head to tail and back.
+     * The ends of a closed loop are null.
+     */
+    private record Chain<TElement, TRoutingInfo>(List<TElement> elements, TElement head, TElement tail,
+                                                 TRoutingInfo forwardCost, TRoutingInfo backwardCost) {
+
+    }
+}
@@ -1,20 +1,35 @@
 package org.gtreimagined.tesseract.graph.standard;
 
-import com.google.common.collect.MultimapBuilder;
-import com.google.common.collect.SetMultimap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.gtreimagined.tesseract.graph.GraphUtils;
+import org.gtreimagined.tesseract.graph.GraphMetrics;
 import org.gtreimagined.tesseract.graph.IElement;
 import org.gtreimagined.tesseract.graph.IGrid;
 import org.gtreimagined.tesseract.graph.INotableElement;
 import org.gtreimagined.tesseract.graph.IRoutingInfo;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 
 /**
  * This handles all network topology updates, and should be compatible with most pipe systems.
@@ -26,39 +41,125 @@ public abstract class StandardGrid<TSelf extends StandardGrid<TSelf, TElement, T
     public static final Logger LOGGER = LogManager.getLogger("Standard Factory Network");
 
     public final HashSet<TNetwork> networks = new HashSet<>();
-    public final HashSet<TElement> vertices = new HashSet<>();
-    public final SetMultimap<TElement, TElement> edges = MultimapBuilder.hashKeys()
-            .hashSetValues()
-            .build();
+    public final GridStorage<TElement> storage;
+
+    // scratch space for topology updates; these are pooled so that reentrant updates from element callbacks are safe
+    private final ScratchPool<ComponentSearch<TElement>> componentSearches;
+    private final ScratchPool<ArrayList<TElement>> elementLists = new ScratchPool<>(ArrayList::new, StandardGrid::resetCollection);
+    private final ScratchPool<ObjectOpenHashSet<TElement>> elementSets = new ScratchPool<>(ObjectOpenHashSet::new, StandardGrid::resetCollection);
+    private final ScratchPool<ObjectOpenHashSet<TNetwork>> networkSets = new ScratchPool<>(ObjectOpenHashSet::new, StandardGrid::resetCollection);
+    private final ScratchPool<ArrayDeque<TElement>> queues = new ScratchPool<>(ArrayDeque::new, StandardGrid::resetCollection);
+    private final Predicate<TElement> unregistered;
+    /** The stack of the neighbour update cascade; frames are kept for reuse. */
+    private final ArrayList<NeighbourFrame<TElement>> frames = new ArrayList<>();
+    private int frameDepth = 0;
+    /** The last stamp handed out to a walk; see {@link GridStorage#getStamp}. */
+    private int lastStamp = 0;
+
+    /** Lets splits step over long runs of plain pipes at once; null if that's disabled. */
+    private SegmentIndex<TElement> segments = null;
+
+    private boolean coalesceNeighbourEvents = false;
+    /** How many topology updates are running; neighbour events are dispatched when the outermost one is done. */
+    private int updateDepth = 0;
+    /** The neighbours every changed element had before the current topology update, in the order they changed. */
+    private final LinkedHashMap<TElement, List<TElement>> previousNeighbours = new LinkedHashMap<>();
+
+    private Executor tickExecutor = null;
+    private int parallelTickThreshold = 0;
+
+    /** How long route rebuilds may take per tick, or -1 to rebuild every changed network every tick. */
+    private long rebuildBudget = -1;
+    private Comparator<? super TNetwork> rebuildPriority = null;
+    /** Networks waiting for a route rebuild, in the order they started waiting. */
+    private final LinkedHashSet<TNetwork> pendingRebuilds = new LinkedHashSet<>();
+
+    private int batchDepth = 0;
+    /** Elements that should be (re-)added when the current batch is committed. */
+    private final LinkedHashSet<TElement> pendingAdds = new LinkedHashSet<>();
+    /** Elements that should be removed when the current batch is committed. */
+    private final LinkedHashSet<TElement> pendingRemoves = new LinkedHashSet<>();
 
     protected StandardGrid() {
+        this(new HashGridStorage<>());
+    }
+
+    /**
+     * @param storage Where vertices and edges are kept; see {@link CompactGridStorage} for very large grids.
+     */
+    protected StandardGrid(GridStorage<TElement> storage) {
+        this.storage = storage;
+        this.componentSearches = new ScratchPool<>(() -> new ComponentSearch<>(storage), ComponentSearch::reset);
+        this.unregistered = element -> !storage.contains(element);
+    }
+
+    /**
+     * @return A read-only view of every registered element.
+     * @deprecated The vertices are kept in {@link #storage} now; use {@link GridStorage#getVertices} and
+     *             {@link GridStorage#contains} instead.
+     */
+    @Deprecated
+    public Collection<TElement> vertices() {
+        return storage.getVertices();
+    }
 
+    /**
+     * @return The cached neighbours of an element, or an empty collection if it isn't registered. The collection must
+     *         not be modified.
+     * @deprecated The edges are kept in {@link #storage} now; use {@link GridStorage#getNeighbours} instead.
+     */
+    @Deprecated
+    public Collection<TElement> edges(TElement element) {
+        return storage.getNeighbours(element);
     }
 
     @Override
     public void addElement(TElement element) {
-        removeElement(element);
-
-        vertices.add(element);
-        updateNeighbours(element);
+        if (batchDepth > 0) {
+            pendingRemoves.remove(element);
+            pendingAdds.add(element);
+            return;
+        }
 
-        HashSet<TElement> discovered = new HashSet<>();
-        HashSet<TNetwork> networks = new HashSet<>();
+        beginUpdate();
 
-        long pre = System.nanoTime();
+        try {
+            removeElement(element);
 
-        walkAdjacency(element, discovered, networks, false);
+            addVertex(element);
+            updateNeighbours(element);
 
-        long post = System.nanoTime();
+            ArrayList<TElement> discovered = elementLists.acquire();
+            ObjectOpenHashSet<TNetwork> networks = networkSets.acquire();
 
-        if (GraphUtils.INSTANCE.isDevEnvironment()) {
-            LOGGER.info("Walked adjacent elements in " + (post - pre) / 1e3 + " us");
+            try {
+                joinNetworks(element, discovered, networks);
+            } finally {
+                networkSets.release(networks);
+                elementLists.release(discovered);
+            }
+        } finally {
+            endUpdate();
         }
+    }
+
+    /**
+     * Puts a freshly added element, and any other network-less elements it connects to, into a network. Adjacent
+     * networks are merged when the element connects several of them.
+     *
+     * @return True if a new network had to be created.
+     */
+    private boolean joinNetworks(TElement element, List<TElement> discovered, Set<TNetwork> networks) {
+        long pre = System.nanoTime();
+
+        walkAdjacency(element, discovered, networks);
+
+        GraphMetrics.INSTANCE.onWalk(discovered.size(), System.nanoTime() - pre);
 
         if (networks.isEmpty()) {
             // there are no neighbours, or the neighbours didn't have a network somehow (which is an illegal state!
             // boo!)
-            TNetwork network = createNetwork();
+            TNetwork network = newNetwork();
             this.networks.add(network);
 
             for (TElement e : discovered) {
@@ -67,6 +168,8 @@ public abstract class StandardGrid<TSelf extends StandardGrid<TSelf, TElement, T
                     network.addElement(e);
                 }
             }
+
+            return true;
         } else if (networks.size() == 1) {
             // there was one network adjacent, so we can just add all discovered elements to it if they aren't already
             TNetwork network = networks.iterator()
@@ -102,10 +205,7 @@ public abstract class StandardGrid<TSelf extends StandardGrid<TSelf, TElement, T
                 }
             }
 
-            post = System.nanoTime();
-            if (GraphUtils.INSTANCE.isDevEnvironment()) {
-                LOGGER.info("Subsumed " + (networks.size() - 1) + " networks in " + (post - pre) / 1e3 + " us");
-            }
+            GraphMetrics.INSTANCE.onMerge(networks.size() - 1, System.nanoTime() - pre);
 
             for (TElement e : discovered) {
                 if (e.getNetwork() != biggestNetwork) {
@@ -114,30 +214,203 @@ public abstract class StandardGrid<TSelf extends StandardGrid<TSelf, TElement, T
                 }
             }
         }
+
+        return false;
     }
 
     @Override
     public void addElementQuietly(TNetwork network, TElement element) {
-        vertices.add(element);
+        addVertex(element);
         element.setNetwork(network);
         network.addElement(element);
     }
 
     public void tick(){
+        if (rebuildBudget >= 0 || tickExecutor != null) {
+            rebuildRoutes(networks);
+        }
+
         for (TNetwork network : networks ) {
             network.tick();
         }
     }
 
+    /**
+     * Rebuilds the routes of the given networks that changed, within the rebuild budget or in parallel if either is
+     * enabled.
+     */
+    protected void rebuildRoutes(Collection<TNetwork> networks) {
+        if (rebuildBudget >= 0) {
+            updateRoutesWithinBudget(networks);
+            return;
+        }
+
+        // networks still waiting from when there was a budget are rebuilt along with the others
+        if (!pendingRebuilds.isEmpty()) {
+            LinkedHashSet<TNetwork> waiting = new LinkedHashSet<>(networks);
+
+            for (TNetwork network : pendingRebuilds) {
+                if (this.networks.contains(network)) waiting.add(network);
+            }
+
+            pendingRebuilds.clear();
+            networks = waiting;
+        }
+
+        if (tickExecutor != null) {
+            updateRoutesInParallel(networks);
+        } else {
+            for (TNetwork network : networks) {
+                network.updateRoutes();
+            }
+        }
+    }
+
+    /**
+     * @return True if the grid rebuilds routes itself instead of leaving it to {@link StandardNetwork#tick()}.
+     */
+    protected boolean schedulesRebuilds() {
+        return rebuildBudget >= 0;
+    }
+
+    /**
+     * Makes {@link #tick()} rebuild the routes of changed networks concurrently on the given executor (for example a
+     * {@link java.util.concurrent.ForkJoinPool}), joining before the tick continues.
+     * Route trackers must only read topology state while rebuilding when this is enabled.
+     *
+     * @param executor  The executor to rebuild routes on, or null to rebuild everything on the ticking thread.
+     * @param threshold Networks with fewer elements than this are rebuilt on the ticking thread.
+     */
+    public void setParallelTick(Executor executor, int threshold) {
+        this.tickExecutor = executor;
+        this.parallelTickThreshold = threshold;
+    }
+
+    /**
+     * Spreads route rebuilds over several ticks to avoid lag spikes after big changes. Each tick rebuilds the networks
+     * that are waiting for a rebuild in priority order until the budget is used up, and the others keep serving the
+     * routes of their last rebuild until it's their turn. At least one network is rebuilt per tick, however long it
+     * takes. This takes precedence over {@link #setParallelTick}.
+     *
+     * @param budgetNanos How long rebuilds may take per tick, or a negative value to rebuild every changed network every
+     *                    tick.
+     * @param priority    Orders the waiting networks, most urgent first, e.g. by size or by how many sinks they have.
+     *                    Networks that compare equal are rebuilt in the order they started waiting. If this is null,
+     *                    the networks that have been waiting the longest go first.
+     */
+    public void setRebuildBudget(long budgetNanos, Comparator<? super TNetwork> priority) {
+        this.rebuildBudget = budgetNanos < 0 ? -1 : budgetNanos;
+        this.rebuildPriority = priority;
+
+        for (TNetwork network : networks) {
+            network.setRebuildsScheduled(schedulesRebuilds());
+        }
+
+        // networks that rebuild themselves again don't need to wait, but subclasses that still pick the networks to
+        // rebuild get the waiting ones on the next tick
+        if (rebuildBudget < 0 && !schedulesRebuilds()) pendingRebuilds.clear();
+    }
+
+    private void updateRoutesWithinBudget(Collection<TNetwork> networks) {
+        for (TNetwork network : networks) {
+            if (network.isRouteUpdatePending()) pendingRebuilds.add(network);
+        }
+
+        // networks that were subsumed or rebuilt by someone else don't need to wait anymore
+        pendingRebuilds.removeIf(network -> !network.isRouteUpdatePending() || !this.networks.contains(network));
+
+        if (pendingRebuilds.isEmpty()) return;
+
+        List<TNetwork> order = new ArrayList<>(pendingRebuilds);
+
+        if (rebuildPriority != null) order.sort(rebuildPriority);
+
+        long deadline = System.nanoTime() + rebuildBudget;
+
+        for (int i = 0; i < order.size(); i++) {
+            if (i > 0 && System.nanoTime() - deadline >= 0) break;
+
+            TNetwork network = order.get(i);
+            network.updateRoutes();
+            pendingRebuilds.remove(network);
+        }
+    }
+
+    /**
+     * Makes splits step over runs of elements with exactly two neighbours, like straight pipe lines, without visiting
+     * every element, so long lines cost less to search. Splits still cost as much as walking the smaller side, since a
+     * search is charged for the length of every run it steps over; the elements of the network that's kept just don't
+     * have to be visited one by one. Runs are learned from earlier splits and forgotten when their inside changes,
+     * which costs some memory and a hash lookup per topology change.
+     * Network membership isn't affected: every element still has its own network, so getElements() and the callbacks
+     * are unchanged.
+     */
+    public void setSegmentIndex(boolean enabled) {
+        this.segments = enabled ? new SegmentIndex<>(storage) : null;
+    }
+
+    private void updateRoutesInParallel(Collection<TNetwork> networks) {
+        List<CompletableFuture<Void>> rebuilds = new ArrayList<>();
+        List<TNetwork> small = new ArrayList<>();
+
+        for (TNetwork network : networks) {
+            if (!network.isRouteUpdatePending()) continue;
+
+            if (network.getElements().size() < parallelTickThreshold) {
+                small.add(network);
+            } else {
+                rebuilds.add(CompletableFuture.runAsync(network::updateRoutes, tickExecutor));
+            }
+        }
+
+        // small networks aren't worth handing off, so rebuild them here while the workers are busy
+        for (TNetwork network : small) {
+            network.updateRoutes();
+        }
+
+        if (!rebuilds.isEmpty()) {
+            CompletableFuture.allOf(rebuilds.toArray(CompletableFuture[]::new))
+                    .join();
+        }
+    }
+
     protected abstract TNetwork createNetwork();
 
+    @SuppressWarnings("unchecked")
+    private TNetwork newNetwork() {
+        TNetwork network = createNetwork();
+        network.setGrid((TSelf) this);
+        network.setRebuildsScheduled(schedulesRebuilds());
+        GraphMetrics.INSTANCE.onNetworkCreated();
+        return network;
+    }
+
     @Override
     public void removeElement(TElement element) {
-        if (!vertices.contains(element)) return;
+        if (batchDepth > 0) {
+            pendingAdds.remove(element);
+            if (storage.contains(element)) pendingRemoves.add(element);
+            return;
+        }
 
-        vertices.remove(element);
-        Set<TElement> neighbours = edges.removeAll(element);
+        ArrayList<TElement> neighbours = elementLists.acquire();
+        beginUpdate();
 
+        try {
+            if (removeVertex(element, neighbours)) {
+                splitNetwork(element, neighbours);
+            }
+        } finally {
+            endUpdate();
+            elementLists.release(neighbours);
+        }
+    }
+
+    /**
+     * Detaches a removed element from its network, and splits the network if the element was the only connection
+     * between some of its neighbours.
+     */
+    private void splitNetwork(TElement element, List<TElement> neighbours) {
         TNetwork network = element.getNetwork();
 
         network.removeElement(element);
@@ -148,6 +421,7 @@ public abstract class StandardGrid<TSelf extends StandardGrid<TSelf, TElement, T
                 .isEmpty()) {
             network.onNetworkRemoved();
             networks.remove(network);
+            GraphMetrics.INSTANCE.onNetworkRemoved();
             return;
         }
 
@@ -159,157 +433,709 @@ public abstract class StandardGrid<TSelf extends StandardGrid<TSelf, TElement, T
         // definitely didn't split a network
         if (neighbours.size() <= 1) return;
 
-        HashSet<HashSet<TElement>> neighbouringClumps = new HashSet<>();
+        long pre = System.nanoTime();
 
-        // the list of all discovered elements; if one is in here, it means we've visited it already and can skip
-        // iterating its neighbours
-        HashSet<TElement> discovered = new HashSet<>();
+        // find the clumps of neighbours that can't reach the rest of the network anymore; this only walks as far as
+        // the smaller side of the split
+        ComponentSearch<TElement> search = componentSearches.acquire();
 
-        long pre = System.nanoTime();
+        try {
+            List<List<TElement>> detachedClumps = search.findDetachedClumps(neighbours, nextStamps(neighbours.size()), segments);
 
-        for (TElement neighbour : neighbours) {
-            if (discovered.contains(neighbour)) continue;
+            // if every neighbour can still reach the others then the network hasn't been split
+            if (detachedClumps.isEmpty()) {
+                return;
+            }
 
-            // find all elements connected to this neighbour
-            HashSet<TElement> clump = new HashSet<>();
-            walkAdjacency(neighbour, clump, null, true);
+            splitOff(network, detachedClumps);
 
-            neighbouringClumps.add(clump);
-            discovered.addAll(clump);
+            GraphMetrics.INSTANCE.onSplit(detachedClumps.size(), System.nanoTime() - pre);
+        } finally {
+            componentSearches.release(search);
         }
+    }
 
-        // if there's only one clump of neighbours then the network hasn't been split
-        if (neighbouringClumps.size() <= 1) {
-            return;
+    /**
+     * Saves the elements, adjacency and networks of this grid, so that {@link #loadTopology} can restore them without
+     * walking the world again. Routes aren't saved since routing info can be anything; they're rebuilt on the first
+     * tick after loading.
+     *
+     * @param ids A stable id for every element, such as its packed position.
+     */
+    public void saveTopology(Path path, ToLongFunction<TElement> ids) throws IOException {
+        if (batchDepth > 0) throw new IllegalStateException("Can't save the topology while a batch is pending");
+
+        int count = storage.size();
+        Object2IntOpenHashMap<TElement> indices = new Object2IntOpenHashMap<>(count);
+        Object2IntOpenHashMap<TNetwork> networkIndices = new Object2IntOpenHashMap<>(this.networks.size());
+        long[] elementIds = new long[count];
+        int[] elementNetworks = new int[count];
+        int[] edgeOffsets = new int[count + 1];
+        int i = 0;
+
+        for (TElement element : storage.getVertices()) {
+            TNetwork network = element.getNetwork();
+
+            if (network == null) throw new IllegalStateException("Element " + element + " isn't in a network");
+
+            indices.put(element, i);
+            elementIds[i] = ids.applyAsLong(element);
+            elementNetworks[i] = networkIndices.computeIfAbsent(network, x -> networkIndices.size());
+            i++;
         }
 
-        HashSet<TElement> biggestClump = null;
+        IntArrayList edges = new IntArrayList();
+        i = 0;
 
-        // find the biggest clump of neighbours; we'll split the other clumps from it
-        for (HashSet<TElement> nn : neighbouringClumps) {
-            if (biggestClump == null || nn.size() > biggestClump.size()) biggestClump = nn;
+        for (TElement element : storage.getVertices()) {
+            for (TElement neighbour : storage.getNeighbours(element)) {
+                edges.add(indices.getInt(neighbour));
+            }
+
+            edgeOffsets[++i] = edges.size();
         }
 
-        for (HashSet<TElement> nn : neighbouringClumps) {
-            if (nn != biggestClump) {
-                for (TElement e : nn) {
-                    network.removeElement(e);
-                }
+        new TopologyFile(elementIds, elementNetworks, networkIndices.size(), edgeOffsets, edges.toIntArray()).write(path);
+    }
 
-                TNetwork newNetwork = createNetwork();
+    /**
+     * Restores a topology saved with {@link #saveTopology} into this empty grid, instead of adding every element one
+     * by one. The saved adjacency is checked against {@link IElement#getNeighbours} first, and nothing is restored if
+     * any element is missing or its neighbours changed. Restored elements don't get neighbour callbacks.
+     * Elements that aren't in the file still have to be added afterwards.
+     *
+     * @param elements Finds the element with an id given to {@link #saveTopology}, or returns null if it's gone.
+     * @return True if the topology was restored, false if the file is missing, outdated or damaged.
+     */
+    public boolean loadTopology(Path path, LongFunction<TElement> elements) throws IOException {
+        if (storage.size() > 0 || batchDepth > 0) throw new IllegalStateException("A topology can only be loaded into an empty grid");
 
-                for (TElement e : nn) {
-                    e.setNetwork(newNetwork);
-                    newNetwork.addElement(e);
-                }
-                this.networks.add(newNetwork);
+        TopologyFile file = TopologyFile.read(path);
+
+        if (file == null) return false;
+
+        int count = file.ids.length;
+        List<TElement> restored = new ArrayList<>(count);
+        ObjectOpenHashSet<TElement> known = new ObjectOpenHashSet<>(count);
+
+        for (long id : file.ids) {
+            TElement element = elements.apply(id);
+
+            if (element == null || !known.add(element)) return false;
+
+            restored.add(element);
+        }
+
+        ArrayList<TElement> neighbours = new ArrayList<>();
+        ObjectOpenHashSet<TElement> saved = new ObjectOpenHashSet<>();
+
+        for (int i = 0; i < count; i++) {
+            for (int edge = file.edgeOffsets[i]; edge < file.edgeOffsets[i + 1]; edge++) {
+                saved.add(restored.get(file.edges[edge]));
             }
+
+            restored.get(i)
+                    .getNeighbours(neighbours);
+            neighbours.removeIf(neighbour -> !known.contains(neighbour));
+
+            boolean matches = saved.containsAll(neighbours) && saved.size() == new ObjectOpenHashSet<>(neighbours).size();
+
+            neighbours.clear();
+            saved.clear();
+
+            if (!matches) return false;
+        }
+
+        List<TNetwork> networks = new ArrayList<>(file.networkCount);
+
+        for (int i = 0; i < file.networkCount; i++) {
+            networks.add(newNetwork());
         }
 
-        long post = System.nanoTime();
+        this.networks.addAll(networks);
 
-        if (GraphUtils.INSTANCE.isDevEnvironment()) {
-            LOGGER.info(
-                    "Split network in " + (post - pre) / 1e3
-                            + " us (added "
-                            + (neighbouringClumps.size() - 1)
-                            + " new networks)");
+        for (int i = 0; i < count; i++) {
+            addElementQuietly(networks.get(file.networks[i]), restored.get(i));
         }
+
+        for (int i = 0; i < count; i++) {
+            for (int edge = file.edgeOffsets[i]; edge < file.edgeOffsets[i + 1]; edge++) {
+                saved.add(restored.get(file.edges[edge]));
+            }
+
+            storage.setNeighbours(restored.get(i), saved, neighbours);
+            saved.clear();
+            neighbours.clear();
+        }
+
+        if (segments != null) segments.clear();
+
+        return true;
+    }
+
+    private void addVertex(TElement element) {
+        if (!storage.add(element)) return;
+
+        GraphMetrics.INSTANCE.onElementAdded();
+        onVertexAdded(element);
+    }
+
+    private boolean removeVertex(TElement element, Collection<TElement> oldNeighbours) {
+        if (coalesceNeighbourEvents && storage.contains(element)) rememberNeighbours(element, storage.getNeighbours(element));
+
+        if (!storage.remove(element, oldNeighbours)) return false;
+
+        GraphMetrics.INSTANCE.onElementRemoved();
+        if (segments != null) segments.forget(element);
+        onVertexRemoved(element);
+        return true;
+    }
+
+    /**
+     * Called when an element is registered with this grid, before its neighbours are updated.
+     */
+    protected void onVertexAdded(TElement element) {
+
+    }
+
+    /**
+     * Called when an element is unregistered from this grid, before its network is fixed up.
+     */
+    protected void onVertexRemoved(TElement element) {
+
+    }
+
+    /**
+     * Called when the neighbours of a registered element changed, before the neighbour callbacks fire.
+     */
+    protected void onAdjacencyChanged(TElement element) {
+
+    }
+
+    /**
+     * Called when a network was split off of another one, after its elements were moved over. By default the new
+     * network gets copies of the old one's flow distributors.
+     */
+    protected void onNetworkSplitOff(TNetwork source, TNetwork network) {
+        network.copyFlowDistributors(source);
     }
 
     @Override
     public void removeElementQuietly(TElement element) {
-        if (!vertices.contains(element)) return;
+        if (!storage.contains(element)) return;
 
-        element.getNetwork()
-                .removeElement(element);
-        vertices.remove(element);
-        element.setNetwork(null);
+        ArrayList<TElement> neighbours = elementLists.acquire();
+        beginUpdate();
 
-        for (TElement neighbour : edges.removeAll(element)) {
-            updateNeighbours(neighbour);
+        try {
+            element.getNetwork()
+                    .removeElement(element);
+            removeVertex(element, neighbours);
+            element.setNetwork(null);
+
+            for (TElement neighbour : neighbours) {
+                updateNeighbours(neighbour);
+            }
+        } finally {
+            endUpdate();
+            elementLists.release(neighbours);
         }
     }
 
     @Override
     public void subsume(TNetwork dest, TNetwork source) {
-        for (TElement element : new ArrayList<>(source.getElements())) {
-            source.removeElement(element);
-            element.setNetwork(dest);
-            dest.addElement(element);
-        }
+        dest.absorb(source);
 
         source.onNetworkRemoved();
         this.networks.remove(source);
+        GraphMetrics.INSTANCE.onNetworkRemoved();
+    }
+
+    @Override
+    public void beginBatch() {
+        batchDepth++;
     }
 
-    private void walkAdjacency(TElement start, HashSet<TElement> discovered, HashSet<TNetwork> networks,
-                               boolean recurseIntoNetworked) {
-        ArrayDeque<TElement> queue = new ArrayDeque<>();
+    @Override
+    public void commitBatch() {
+        if (batchDepth == 0) throw new IllegalStateException("commitBatch() was called without a matching beginBatch()");
+
+        if (--batchDepth > 0) return;
+
+        if (pendingAdds.isEmpty() && pendingRemoves.isEmpty()) return;
+
+        beginUpdate();
+
+        try {
+            applyBatch();
+        } finally {
+            endUpdate();
+        }
+    }
+
+    private void applyBatch() {
+        List<TElement> added = new ArrayList<>(pendingAdds);
+        List<TElement> removed = new ArrayList<>(pendingRemoves);
+        pendingAdds.clear();
+        pendingRemoves.clear();
+
+        long pre = System.nanoTime();
+
+        // networks that lost elements, and the elements that lost neighbours
+        HashSet<TNetwork> damagedNetworks = new HashSet<>();
+        LinkedHashSet<TElement> touched = new LinkedHashSet<>();
+
+        // re-added elements get a hard reset, just like addElement does
+        for (TElement e : added) {
+            if (storage.contains(e)) detachElement(e, damagedNetworks, touched);
+        }
+
+        for (TElement e : removed) {
+            detachElement(e, damagedNetworks, touched);
+        }
+
+        updateAllNeighbours(touched);
+
+        // split the damaged networks before anything is added, so that the searches can't leave them
+        int split = splitDamagedNetworks(damagedNetworks, touched);
+
+        for (TElement e : added) {
+            addVertex(e);
+        }
+
+        updateAllNeighbours(added);
+
+        // the added elements are the only ones without a network, so only they are walked
+        ArrayList<TElement> discovered = elementLists.acquire();
+        ObjectOpenHashSet<TNetwork> networks = networkSets.acquire();
+        int created = 0;
+        int subsumed = 0;
+
+        try {
+            for (TElement e : added) {
+                // an earlier walk may have gotten here first
+                if (e.getNetwork() != null) continue;
+
+                if (joinNetworks(e, discovered, networks)) created++;
+
+                subsumed += Math.max(networks.size() - 1, 0);
+                discovered.clear();
+                networks.clear();
+            }
+        } finally {
+            networkSets.release(networks);
+            elementLists.release(discovered);
+        }
+
+        GraphMetrics.INSTANCE.onBatchCommitted(added.size(), removed.size(), created, split, subsumed, System.nanoTime() - pre);
+    }
+
+    /**
+     * Removes an element and its edges without fixing up its network, for use while committing a batch.
+     */
+    private void detachElement(TElement element, HashSet<TNetwork> damagedNetworks, Set<TElement> touched) {
+        if (!removeVertex(element, touched)) return;
+
+        TNetwork network = element.getNetwork();
+
+        if (network != null) {
+            network.removeElement(element);
+            element.setNetwork(null);
+            damagedNetworks.add(network);
+        }
+    }
 
-        queue.add(start);
+    private void updateAllNeighbours(Collection<TElement> elements) {
+        ObjectOpenHashSet<TElement> updated = elementSets.acquire();
 
-        while (!queue.isEmpty()) {
-            TElement current = queue.removeFirst();
+        try {
+            for (TElement e : elements) {
+                updateNeighbours(e, updated);
+            }
+        } finally {
+            elementSets.release(updated);
+        }
+    }
 
-            if(!discovered.add(current)) continue;
+    /**
+     * Drops the networks that a batch emptied, and splits the ones it cut apart. Every part of a damaged network that's
+     * left holds one of the surviving neighbours of the removed elements, so the split searches start from those and
+     * only walk as far as the smaller parts, just like {@link #splitNetwork} does for a single element.
+     *
+     * @return How many networks were split off.
+     */
+    private int splitDamagedNetworks(Set<TNetwork> damagedNetworks, Collection<TElement> touched) {
+        HashMap<TNetwork, List<TElement>> starts = new HashMap<>();
+
+        for (TElement e : touched) {
+            TNetwork network = e.getNetwork();
+
+            if (network != null && damagedNetworks.contains(network) && storage.contains(e)) {
+                starts.computeIfAbsent(network, x -> new ArrayList<>())
+                        .add(e);
+            }
+        }
 
-            if (networks != null) networks.add(current.getNetwork());
+        int split = 0;
 
-            if (current == start || (recurseIntoNetworked || current.getNetwork() == null)) {
-                queue.addAll(edges.get(current));
+        for (TNetwork network : damagedNetworks) {
+            if (network.getElements()
+                    .isEmpty()) {
+                network.onNetworkRemoved();
+                this.networks.remove(network);
+                GraphMetrics.INSTANCE.onNetworkRemoved();
+                continue;
+            }
+
+            List<TElement> neighbours = starts.get(network);
+
+            if (neighbours == null || neighbours.size() <= 1) continue;
+
+            long pre = System.nanoTime();
+            ComponentSearch<TElement> search = componentSearches.acquire();
+
+            try {
+                List<List<TElement>> detachedClumps = search.findDetachedClumps(neighbours, nextStamps(neighbours.size()), segments);
+
+                if (detachedClumps.isEmpty()) continue;
+
+                splitOff(network, detachedClumps);
+                split += detachedClumps.size();
+                GraphMetrics.INSTANCE.onSplit(detachedClumps.size(), System.nanoTime() - pre);
+            } finally {
+                componentSearches.release(search);
             }
         }
 
-        if (networks != null) networks.remove(null);
+        return split;
+    }
+
+    /**
+     * Moves every clump out of a network and into a new network of its own.
+     */
+    private void splitOff(TNetwork network, List<List<TElement>> clumps) {
+        for (List<TElement> nn : clumps) {
+            for (TElement e : nn) {
+                network.removeElement(e);
+            }
+
+            TNetwork newNetwork = newNetwork();
+
+            for (TElement e : nn) {
+                e.setNetwork(newNetwork);
+                newNetwork.addElement(e);
+            }
+            this.networks.add(newNetwork);
+            onNetworkSplitOff(network, newNetwork);
+        }
+    }
+
+    @Override
+    public Collection<TElement> getAdjacent(TElement element) {
+        return storage.getNeighbours(element);
+    }
+
+    /**
+     * Walks from an element through every element without a network, collecting the walked elements and the networks
+     * found at the edge of the walk.
+     */
+    private void walkAdjacency(TElement start, List<TElement> discovered, Set<TNetwork> networks) {
+        ArrayDeque<TElement> queue = queues.acquire();
+        int stamp = nextStamps(1);
+
+        try {
+            queue.add(start);
+
+            while (!queue.isEmpty()) {
+                TElement current = queue.removeFirst();
+
+                if (storage.getStamp(current) == stamp) continue;
+
+                storage.setStamp(current, stamp);
+                discovered.add(current);
+
+                TNetwork network = current.getNetwork();
+
+                if (network != null) networks.add(network);
+
+                if (current == start || network == null) {
+                    storage.getNeighbours(current, queue);
+                }
+            }
+        } finally {
+            queues.release(queue);
+        }
+    }
+
+    /**
+     * Reserves a range of fresh stamps for a walk. Stamps only ever grow, so stamps left over from earlier walks can
+     * never collide with the reserved range.
+     *
+     * @return The first stamp of the range.
+     */
+    private int nextStamps(int count) {
+        if (lastStamp > Integer.MAX_VALUE - count - 1) {
+            storage.clearStamps();
+            if (segments != null) segments.clearStamps();
+            lastStamp = 0;
+        }
+
+        int first = lastStamp + 1;
+        lastStamp += count;
+        return first;
+    }
+
+    private static boolean resetCollection(Collection<?> collection) {
+        // don't hold on to the memory of a huge update forever
+        boolean keep = collection.size() <= 1024;
+        collection.clear();
+        return keep;
     }
 
     public void updateNeighbours(TElement element) {
-        updateNeighbours(element, new HashSet<>());
+        ObjectOpenHashSet<TElement> updated = elementSets.acquire();
+        beginUpdate();
+
+        try {
+            updateNeighbours(element, updated);
+        } finally {
+            endUpdate();
+            elementSets.release(updated);
+        }
     }
 
-    private void updateNeighbours(TElement element, HashSet<TElement> updated) {
+    /**
+     * Makes the grid collect the neighbour changes of every element during a topology update, then call
+     * {@link IElement#onNeighboursChanged} once per element when the update is done, instead of calling
+     * {@link IElement#onNeighbourAdded} and {@link IElement#onNeighbourRemoved} for every edge as it changes.
+     * A batch counts as a single update. Override {@link #dispatchNeighbourChanges} to handle the changes in bulk.
+     */
+    public void setCoalescedNeighbourEvents(boolean coalesce) {
+        this.coalesceNeighbourEvents = coalesce;
+    }
+
+    /**
+     * Delivers the neighbour changes of a topology update when neighbour events are coalesced. Elements may start new
+     * topology updates from their callbacks, and those are dispatched separately.
+     *
+     * @param changes One change per element whose neighbours differ from before the update, in the order the elements
+     *                first changed.
+     */
+    protected void dispatchNeighbourChanges(List<NeighbourChange<TElement>> changes) {
+        for (NeighbourChange<TElement> change : changes) {
+            change.element()
+                    .onNeighboursChanged(change.added(), change.removed());
+        }
+    }
+
+    private void beginUpdate() {
+        updateDepth++;
+    }
+
+    private void endUpdate() {
+        if (--updateDepth > 0 || previousNeighbours.isEmpty()) return;
+
+        List<NeighbourChange<TElement>> changes = new ArrayList<>(previousNeighbours.size());
+
+        for (Map.Entry<TElement, List<TElement>> entry : previousNeighbours.entrySet()) {
+            List<TElement> before = entry.getValue();
+            Collection<TElement> after = storage.getNeighbours(entry.getKey());
+            List<TElement> added = new ArrayList<>();
+            List<TElement> removed = new ArrayList<>();
+
+            for (TElement neighbour : after) {
+                if (!before.contains(neighbour)) added.add(neighbour);
+            }
+
+            for (TElement neighbour : before) {
+                if (!after.contains(neighbour)) removed.add(neighbour);
+            }
+
+            // edges that were removed and added back again cancel out
+            if (!added.isEmpty() || !removed.isEmpty()) changes.add(new NeighbourChange<>(entry.getKey(), added, removed));
+        }
+
+        previousNeighbours.clear();
+
+        if (!changes.isEmpty()) dispatchNeighbourChanges(changes);
+    }
+
+    /**
+     * Remembers the neighbours an element had before the current topology update, if they weren't remembered yet.
+     */
+    private void rememberNeighbours(TElement element, Collection<TElement> neighbours) {
+        if (coalesceNeighbourEvents && !previousNeighbours.containsKey(element)) {
+            previousNeighbours.put(element, new ArrayList<>(neighbours));
+        }
+    }
+
+    /**
+     * Re-discovers the neighbours of an element, then cascades into every neighbour that was added or removed.
+     * The cascade runs on an explicit stack of frames instead of recursing, so long pipe lines can't overflow the
+     * call stack. Callbacks still fire in the same order as a depth-first recursion: the callbacks for an edge fire once
+     * the neighbour on the other side has been updated, so both sides of the edge are up to date.
+     */
+    private void updateNeighbours(TElement element, Set<TElement> updated) {
         if (!updated.add(element)) return;
 
-        HashSet<TElement> neighbours = new HashSet<>();
+        ArrayList<TElement> keptEdges = elementLists.acquire();
+        ArrayList<TElement> missingEdges = elementLists.acquire();
+        int base = frameDepth;
 
-        element.getNeighbours(neighbours);
+        try {
+            pushFrame(element);
 
-        Set<TElement> oldNeighbours = edges.removeAll(element);
-        edges.putAll(element, neighbours);
+            while (frameDepth > base) {
+                NeighbourFrame<TElement> frame = frames.get(frameDepth - 1);
+
+                if (frame.next == frame.removed.size() + frame.added.size()) {
+                    popFrame();
+                    continue;
+                }
 
-        for (TElement oldNeighbour : oldNeighbours) {
-            if (!neighbours.contains(oldNeighbour)) {
-                updateNeighbours(oldNeighbour, updated);
+                boolean removing = frame.next < frame.removed.size();
+                TElement neighbour = removing ? frame.removed.get(frame.next) : frame.added.get(frame.next - frame.removed.size());
 
-                if (edges.containsEntry(oldNeighbour, element)) {
-                    LOGGER.error(
-                            "A factory element isn't following the graph adjacency contract. Edge B -> A was kept when edge A -> B was removed. A = "
-                                    + element
-                                    + ", B = "
-                                    + oldNeighbour);
+                if (!frame.descended) {
+                    frame.descended = true;
+
+                    // bring the neighbour up to date before telling either side about the edge
+                    if (updated.add(neighbour)) {
+                        pushFrame(neighbour);
+                        continue;
+                    }
+                }
+
+                frame.descended = false;
+                frame.next++;
+
+                if (removing) {
+                    keptEdges.add(frame.element);
+                    keptEdges.add(neighbour);
+
+                    if (!coalesceNeighbourEvents) {
+                        neighbour.onNeighbourRemoved(frame.element);
+                        frame.element.onNeighbourRemoved(neighbour);
+                    }
+                } else {
+                    missingEdges.add(frame.element);
+                    missingEdges.add(neighbour);
+
+                    if (!coalesceNeighbourEvents) {
+                        neighbour.onNeighbourAdded(frame.element);
+                        frame.element.onNeighbourAdded(neighbour);
+                    }
                 }
+            }
 
-                oldNeighbour.onNeighbourRemoved(element);
-                element.onNeighbourRemoved(oldNeighbour);
+            checkAdjacencyContract(keptEdges, missingEdges);
+        } finally {
+            while (frameDepth > base) {
+                popFrame();
             }
+
+            elementLists.release(missingEdges);
+            elementLists.release(keptEdges);
         }
+    }
 
-        for (TElement currentNeighbour : neighbours) {
-            if (!oldNeighbours.contains(currentNeighbour)) {
-                updateNeighbours(currentNeighbour, updated);
+    private void pushFrame(TElement element) {
+        if (frameDepth == frames.size()) frames.add(new NeighbourFrame<>());
 
-                if (!edges.containsEntry(currentNeighbour, element)) {
-                    LOGGER.error(
-                            "A factory element isn't following the graph adjacency contract. Edge B -> A was not added when edge A -> B was added. A = "
-                                    + element
-                                    + ", B = "
-                                    + currentNeighbour);
-                }
+        NeighbourFrame<TElement> frame = frames.get(frameDepth++);
+        frame.element = element;
+
+        // only registered elements have edges; anything else is picked up once it's added to the grid
+        if (storage.contains(element)) {
+            element.getNeighbours(frame.neighbours);
+            frame.neighbours.removeIf(unregistered);
+        }
+
+        storage.setNeighbours(element, frame.neighbours, frame.oldNeighbours);
+
+        for (TElement oldNeighbour : frame.oldNeighbours) {
+            if (!frame.neighbours.contains(oldNeighbour)) frame.removed.add(oldNeighbour);
+        }
+
+        for (TElement currentNeighbour : frame.neighbours) {
+            if (!frame.oldNeighbours.contains(currentNeighbour)) frame.added.add(currentNeighbour);
+        }
+
+        if (!frame.removed.isEmpty() || !frame.added.isEmpty()) {
+            rememberNeighbours(element, frame.oldNeighbours);
+
+            if (segments != null) segments.onEdgesChanged(element, frame.removed);
 
-                currentNeighbour.onNeighbourAdded(element);
-                element.onNeighbourAdded(currentNeighbour);
+            onAdjacencyChanged(element);
+
+            if (element.getNetwork() != null) {
+                element.getNetwork()
+                        .onAdjacencyChanged(element);
+            }
+        }
+    }
+
+    private void popFrame() {
+        frames.get(--frameDepth)
+                .reset();
+    }
+
+    /**
+     * Logs every edge whose reverse edge didn't follow it. Both lists hold pairs of (A, B) for edges A -> B.
+     */
+    private void checkAdjacencyContract(List<TElement> keptEdges, List<TElement> missingEdges) {
+        for (int i = 0; i < keptEdges.size(); i += 2) {
+            if (storage.hasEdge(keptEdges.get(i + 1), keptEdges.get(i))) {
+                LOGGER.error(
+                        "A factory element isn't following the graph adjacency contract. Edge B -> A was kept when edge A -> B was removed. A = "
+                                + keptEdges.get(i)
+                                + ", B = "
+                                + keptEdges.get(i + 1));
+            }
+        }
+
+        for (int i = 0; i < missingEdges.size(); i += 2) {
+            if (!storage.hasEdge(missingEdges.get(i + 1), missingEdges.get(i))) {
+                LOGGER.error(
+                        "A factory element isn't following the graph adjacency contract. Edge B -> A was not added when edge A -> B was added. A = "
+                                + missingEdges.get(i)
+                                + ", B = "
+                                + missingEdges.get(i + 1));
             }
         }
     }
+
+    /**
+     * The neighbours an element gained and lost during a topology update, compared to before the update.
+     */
+    public record NeighbourChange<TElement>(TElement element, List<TElement> added, List<TElement> removed) {
+
+    }
+
+    /**
+     * One element of a neighbour update cascade: its new and old neighbours, and how far its callbacks have gotten.
+     */
+    private static final class NeighbourFrame<TElement> {
+        private TElement element;
+        private final ObjectOpenHashSet<TElement> neighbours = new ObjectOpenHashSet<>();
+        private final ArrayList<TElement> oldNeighbours = new ArrayList<>();
+        /** Old neighbours that are gone now. */
+        private final ArrayList<TElement> removed = new ArrayList<>();
+        /** New neighbours that weren't there before. */
+        private final ArrayList<TElement> added = new ArrayList<>();
+        /** The index of the next edge to handle, counting removed edges first. */
+        private int next = 0;
+        /** Whether the neighbour of the next edge has been brought up to date already. */
+        private boolean descended = false;
+
+        private void reset() {
+            element = null;
+            neighbours.clear();
+            oldNeighbours.clear();
+            removed.clear();
+            added.clear();
+            next = 0;
+            descended = false;
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package org.gtreimagined.tesseract.graph.standard;
 
+import org.gtreimagined.tesseract.graph.GraphMetrics;
 import org.gtreimagined.tesseract.graph.IElement;
 import org.gtreimagined.tesseract.graph.IGrid;
 import org.gtreimagined.tesseract.graph.INetwork;
@@ -7,10 +8,11 @@ import org.gtreimagined.tesseract.graph.INotableElement;
 import org.gtreimagined.tesseract.graph.IRouteTracker;
 import org.gtreimagined.tesseract.graph.IRoutingInfo;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 
 /**
  * A pretty basic factory network.
@@ -20,18 +22,32 @@ public abstract class StandardNetwork<TSelf extends StandardNetwork<TSelf, TElem
         implements INetwork<TSelf, TElement, TNotableElement, TRoutingInfo, TGrid> {
 
     public final HashSet<TElement> elements = new HashSet<>();
-    public final HashMap<Class<?>, Collection<Object>> components = new HashMap<>();
+    public final ComponentRegistry componentRegistry = new ComponentRegistry();
+    /**
+     * @deprecated Use {@link #componentRegistry}, or {@link #getComponents(Class)} to look up components. This is a
+     *             read-only view of it now.
+     */
+    @Deprecated
+    public final Map<Class<?>, Collection<Object>> components = componentRegistry.asMap();
     private final Class<TElement> elementClass;
     private final Class<TNotableElement> notableElementClass;
 
     public IRouteTracker<TRoutingInfo, TNotableElement, TElement, TSelf, TGrid> routeTracker;
+    private final List<FlowDistributor<TNotableElement, TRoutingInfo>> flowDistributors = new ArrayList<>();
 
     private boolean networkChanged = false;
+    /** Whether the grid decides when routes are rebuilt, instead of every tick. */
+    private boolean rebuildsScheduled = false;
+    private int modifications = 0;
 
+    private TGrid grid;
+
+    @SuppressWarnings("unchecked")
     protected StandardNetwork(Class<TElement> elementClass, Class<TNotableElement> notableElementClass) {
         this.elementClass = elementClass;
         this.notableElementClass = notableElementClass;
         this.routeTracker = createRouteTracker();
+        this.routeTracker.setNetwork((TSelf) this);
     }
 
     protected abstract IRouteTracker<TRoutingInfo, TNotableElement, TElement, TSelf, TGrid> createRouteTracker();
@@ -52,9 +68,24 @@ public abstract class StandardNetwork<TSelf extends StandardNetwork<TSelf, TElem
 
         routeTracker.onElementAdded(element);
         networkChanged = true;
-        for (var component : element.getComponents()) {
-            addComponentImpl(component.left(), component.right());
-        }
+        modifications++;
+        element.forEachComponent(componentRegistry.adder);
+    }
+
+    @Override
+    public void onAdjacencyChanged(TElement element) {
+        routeTracker.onAdjacencyChanged(element);
+        networkChanged = true;
+    }
+
+    @Override
+    public TGrid getGrid() {
+        return grid;
+    }
+
+    @Override
+    public void setGrid(TGrid grid) {
+        this.grid = grid;
     }
 
     @Override
@@ -62,48 +93,146 @@ public abstract class StandardNetwork<TSelf extends StandardNetwork<TSelf, TElem
         elements.remove(element);
         routeTracker.onElementRemoved(element);
         networkChanged = true;
+        modifications++;
         if (element != null && element.getNetwork() == this) {
-            for (var component : element.getComponents()) {
-                removeComponentImpl(component.left(), component.right());
-            }
+            element.forEachComponent(componentRegistry.remover);
         }
     }
 
-    private void addComponentImpl(Class<?> iface, Object impl) {
-        components.computeIfAbsent(iface, x -> new HashSet<>())
-                .add(impl);
+    /**
+     * Moves the elements, components, routes and flow distributors of another network into this one in bulk.
+     * Subclasses that keep their own per-element state should override this as well.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void absorb(TSelf source) {
+        for (TElement element : source.elements) {
+            element.setNetwork((TSelf) this);
+        }
+
+        routeTracker.absorb(source.routeTracker, source.elements);
+
+        elements.addAll(source.elements);
+        source.elements.clear();
+
+        componentRegistry.absorb(source.componentRegistry);
+
+        // private fields can't be reached through TSelf
+        StandardNetwork<TSelf, TElement, TNotableElement, TRoutingInfo, TGrid> from = source;
+
+        for (FlowDistributor<TNotableElement, TRoutingInfo> distributor : from.flowDistributors) {
+            if (!hasFlowDistributor(distributor)) flowDistributors.add(distributor);
+        }
+
+        from.flowDistributors.clear();
+
+        networkChanged = true;
+        modifications++;
     }
 
     public <TIface, TImpl extends TIface> void addComponent(Class<TIface> iface, TImpl impl) {
-        addComponentImpl(iface, impl);
+        componentRegistry.add(iface, impl);
+    }
+
+    /**
+     * @return A counter that changes whenever elements are added or removed, for telling whether a copy of the
+     *         elements is still up to date.
+     */
+    public int getModificationCount() {
+        return modifications;
     }
 
     public void tick(){
-        if (networkChanged) {
-            networkChanged = false;
-            routeTracker.updateEdges();
+        // routes rebuilt in the background are published right away, since that's cheap
+        if (!rebuildsScheduled || routeTracker.isUpdatePending()) updateRoutes();
+        distributeFlows();
+    }
+
+    /**
+     * Makes {@link #tick()} leave rebuilding the routes to whoever calls {@link #updateRoutes()}, such as a grid with a
+     * route rebuild budget. The route tracker keeps serving the routes of the last rebuild until then.
+     */
+    public void setRebuildsScheduled(boolean scheduled) {
+        this.rebuildsScheduled = scheduled;
+    }
+
+    /**
+     * Makes this network distribute a kind of flow every tick, after its routes are rebuilt. Networks merged into this
+     * one hand over the kinds this one doesn't distribute yet, and networks split off of it get
+     * {@link FlowDistributor#copy() copies} of its distributors (see {@link StandardGrid#onNetworkSplitOff}).
+     */
+    public void addFlowDistributor(FlowDistributor<TNotableElement, TRoutingInfo> distributor) {
+        flowDistributors.add(distributor);
+    }
+
+    /**
+     * Adds a copy of every distributor of another network, except for the kinds this network already distributes.
+     */
+    public void copyFlowDistributors(TSelf source) {
+        StandardNetwork<TSelf, TElement, TNotableElement, TRoutingInfo, TGrid> from = source;
+
+        for (FlowDistributor<TNotableElement, TRoutingInfo> distributor : from.flowDistributors) {
+            if (!hasFlowDistributor(distributor)) flowDistributors.add(distributor.copy());
+        }
+    }
+
+    private boolean hasFlowDistributor(FlowDistributor<?, ?> kind) {
+        for (int i = 0; i < flowDistributors.size(); i++) {
+            if (flowDistributors.get(i)
+                    .isSameKind(kind)) return true;
+        }
+
+        return false;
+    }
+
+    protected void distributeFlows() {
+        for (int i = 0; i < flowDistributors.size(); i++) {
+            flowDistributors.get(i)
+                    .distribute(componentRegistry, routeTracker::getPaths);
         }
     }
 
-    private void removeComponentImpl(Class<?> iface, Object impl) {
-        Collection<Object> s = components.get(iface);
+    /**
+     * @return True if elements were added or removed since the routes were last rebuilt, or the route tracker has
+     *         routes to publish.
+     */
+    public boolean isRouteUpdatePending() {
+        return networkChanged || routeTracker.isUpdatePending();
+    }
 
-        if (s != null) {
-            s.remove(impl);
+    /**
+     * Rebuilds the routes if the network changed since the last rebuild.
+     * This may be called from a worker thread when the grid ticks in parallel, but never concurrently with topology
+     * changes.
+     */
+    public void updateRoutes() {
+        if (isRouteUpdatePending()) {
+            networkChanged = false;
 
-            if (s.isEmpty()) {
-                components.remove(iface);
-            }
+            long pre = System.nanoTime();
+            routeTracker.updateEdges();
+            GraphMetrics.INSTANCE.onRouteRebuild(elements.size(), System.nanoTime() - pre);
         }
     }
 
     public <TIface, TImpl extends TIface> void removeComponent(Class<TIface> iface, TImpl impl) {
-        removeComponentImpl(iface, impl);
+        componentRegistry.remove(iface, impl);
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * @return Every component that can be used as the given type, including components that were added as a subtype.
+     *         This is a snapshot; it doesn't change when components are added or removed later.
+     */
     public <TIface> Collection<TIface> getComponents(Class<TIface> iface) {
-        return (Collection<TIface>) components.getOrDefault(iface, Collections.emptyList());
+        return componentRegistry.get(iface);
+    }
+
+    /**
+     * Same as {@link #getComponents(Class)}, but as an array for iterating in tick loops. The array must not be
+     * modified.
+     */
+    public <TIface> TIface[] getComponentArray(Class<TIface> iface) {
+        return componentRegistry.getArray(iface);
     }
 
     @Override
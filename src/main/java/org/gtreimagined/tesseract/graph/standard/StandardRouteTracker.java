@@ -1,7 +1,7 @@
 package org.gtreimagined.tesseract.graph.standard;
 
+import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
-import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import org.gtreimagined.tesseract.graph.IElement;
 import org.gtreimagined.tesseract.graph.IGrid;
 import org.gtreimagined.tesseract.graph.INetwork;
@@ -10,22 +10,212 @@ import org.gtreimagined.tesseract.graph.IRouteTracker;
 import org.gtreimagined.tesseract.graph.IRoutingInfo;
 import org.gtreimagined.tesseract.graph.RoutedNode;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Tracks the routes between the notable elements of a network.
+ * By default, every route affected by a topology change is rebuilt on the next update. A tracker created with a cache
+ * capacity is lazy instead: updates only forget the affected routes, and {@link #getPaths} computes the routes of a
+ * notable element the first time they're asked for, keeping the most recently used ones.
+ * Trackers can also {@link #setAsyncRebuilds rebuild in the background}, so that big rebuilds don't hold up the tick.
+ */
 public abstract class StandardRouteTracker<TRoutingInfo extends IRoutingInfo<TRoutingInfo>, TNotableElement extends INotableElement<TNotableElement, TRoutingInfo, TElement, TNetwork, TGrid>, TElement extends IElement<TElement, TNotableElement, TRoutingInfo, TNetwork, TGrid>, TNetwork extends INetwork<TNetwork, TElement, TNotableElement, TRoutingInfo, TGrid>, TGrid extends IGrid<TGrid, TElement, TNotableElement, TRoutingInfo, TNetwork>> implements IRouteTracker<TRoutingInfo, TNotableElement, TElement, TNetwork, TGrid> {
-    Map<TNotableElement, List<RoutedNode<TNotableElement, TRoutingInfo>>> edges = new Object2ObjectOpenHashMap<>();
+
+    /** The adjacency that the background rebuild running on this thread took when it started. */
+    private static final ThreadLocal<Map<?, ? extends Collection<?>>> REBUILD_ADJACENCY = new ThreadLocal<>();
+
+    Map<TNotableElement, List<RoutedNode<TNotableElement, TRoutingInfo>>> edges;
+    /** The same map as {@link #edges} in lazy mode, ordered from least to most recently used; null otherwise. */
+    private final Object2ObjectLinkedOpenHashMap<TNotableElement, List<RoutedNode<TNotableElement, TRoutingInfo>>> cache;
+    private final int cacheCapacity;
 
     public final HashSet<TNotableElement> notableElements = new HashSet<>();
 
+    /** Elements that were added or had their neighbours changed since the last rebuild. */
+    private final HashSet<TElement> changedElements = new HashSet<>();
+    /** Notable elements whose routes have to be rebuilt. */
+    private final HashSet<TNotableElement> dirtyElements = new HashSet<>();
+    private boolean allDirty = false;
+
+    // scratch space for finding dirty elements
+    private final HashSet<TElement> visited = new HashSet<>();
+    private final ArrayDeque<TElement> queue = new ArrayDeque<>();
+
+    protected TNetwork network;
+
+    /** The routes as of the last rebuild; this is what readers see. */
+    private volatile RouteSnapshot<TNotableElement, TRoutingInfo> snapshot = RouteSnapshot.empty();
+    private long version = 0;
+    /** Keeps one copy of every route, so that rebuilt routes that didn't change are shared with the old ones. */
+    private final RoutePool<TNotableElement, TRoutingInfo> pool = new RoutePool<>();
+    /** Sources whose routes changed since the last snapshot; the next snapshot copies the others over as they are. */
+    private final HashSet<TNotableElement> unpublished = new HashSet<>();
+    /** True if the routes were thrown away since the last snapshot, so every source has to be looked at again. */
+    private boolean republishAll = false;
+
+    /** True if something changed since the last rebuild started. */
+    private boolean stale = false;
+    /** Completes once the changes made since the last rebuild started are published; null if nobody asked. */
+    private CompletableFuture<RouteSnapshot<TNotableElement, TRoutingInfo>> freshSnapshot;
+
+    private Executor asyncExecutor;
+    private int asyncThreshold;
+    /** The routes of {@link #rebuildSources}, in the same order, while they're rebuilt in the background. */
+    private CompletableFuture<List<List<RoutedNode<TNotableElement, TRoutingInfo>>>> rebuild;
+    private List<TNotableElement> rebuildSources;
+    /**
+     * Sources that left the network during the background rebuild. Their rebuilt routes may be older than the routes
+     * they got elsewhere in the meantime.
+     */
+    private final HashSet<TNotableElement> discardedSources = new HashSet<>();
+    /** Completes once the background rebuild is published; null if nobody asked. */
+    private CompletableFuture<RouteSnapshot<TNotableElement, TRoutingInfo>> rebuildSnapshot;
+
+    protected StandardRouteTracker() {
+        this.edges = new Object2ObjectOpenHashMap<>();
+        this.cache = null;
+        this.cacheCapacity = 0;
+    }
+
+    /**
+     * Creates a lazy tracker.
+     * Routes are computed on the thread that asks for them, so {@link #getPaths} must only be called from the thread
+     * that changes the topology, and parallel route rebuilds only do the invalidation work.
+     *
+     * @param cacheCapacity How many notable elements to keep routes for; the least recently used are forgotten first.
+     */
+    protected StandardRouteTracker(int cacheCapacity) {
+        if (cacheCapacity <= 0) throw new IllegalArgumentException("cacheCapacity must be positive, but was " + cacheCapacity);
+
+        this.cache = new Object2ObjectLinkedOpenHashMap<>();
+        this.edges = cache;
+        this.cacheCapacity = cacheCapacity;
+    }
+
+    public boolean isLazy() {
+        return cache != null;
+    }
+
+    @Override
+    public void setNetwork(TNetwork network) {
+        this.network = network;
+    }
+
+    /**
+     * Makes big rebuilds run in the background. The routes to rebuild and a copy of the adjacency they can reach are
+     * taken on the ticking thread, the routes are computed on the executor, and the results are published by the first
+     * update after they're done. Until then {@link #getPaths} keeps serving the routes of the last rebuild, and changes
+     * made in the meantime wait for the next rebuild. Smaller rebuilds and lazy trackers still rebuild on the ticking
+     * thread. {@link #makePaths} must only read the topology through {@link #getAdjacent} when this is enabled, and
+     * must not touch anything else that changes with the world, so only trackers that {@link #supportsAsyncRebuilds()}
+     * can enable it.
+     *
+     * @param executor  The executor to rebuild on, e.g. {@link #defaultAsyncExecutor()}, or null to always rebuild on
+     *                  the ticking thread.
+     * @param threshold Networks with fewer elements than this are rebuilt on the ticking thread.
+     * @throws IllegalStateException If an executor is given, but this tracker doesn't support background rebuilds.
+     */
+    public void setAsyncRebuilds(Executor executor, int threshold) {
+        if (executor != null && !supportsAsyncRebuilds()) {
+            throw new IllegalStateException(getClass().getName() + " can't rebuild routes in the background, since its makePaths may read the live world");
+        }
+
+        this.asyncExecutor = executor;
+        this.asyncThreshold = threshold;
+    }
+
+    /**
+     * @return True if {@link #makePaths} only reads the topology through {@link #getAdjacent}, so that it can run on
+     *         another thread. The default {@link #makePaths} asks the notable elements for their routed neighbours,
+     *         which walks the live world, so subclasses have to override both.
+     */
+    protected boolean supportsAsyncRebuilds() {
+        return false;
+    }
+
+    /**
+     * @return A shared executor for background rebuilds: a virtual thread per rebuild on Java 21 and later, or a small
+     *         pool of daemon threads otherwise.
+     */
+    public static Executor defaultAsyncExecutor() {
+        return AsyncExecutorHolder.EXECUTOR;
+    }
+
+    /**
+     * @return True while routes are being rebuilt in the background.
+     */
+    protected boolean isRebuildingInBackground() {
+        return rebuild != null;
+    }
+
+    @Override
+    public boolean isUpdatePending() {
+        return rebuild != null && rebuild.isDone();
+    }
+
+    /**
+     * @return The routes of a notable element as of the last rebuild. The list is immutable, so it can be iterated while
+     *         the routes are being rebuilt. In lazy mode, routes that aren't cached are computed right away.
+     */
     @Override
     public List<RoutedNode<TNotableElement, TRoutingInfo>> getPaths(TNotableElement source) {
-        if (edges.containsKey(source)) {
-            return edges.get(source);
+        if (cache == null) return snapshot.getPaths(source);
+
+        List<RoutedNode<TNotableElement, TRoutingInfo>> paths = cache.getAndMoveToLast(source);
+
+        if (paths == null) {
+            if (!notableElements.contains(source)) return List.of();
+
+            // idle elements are cached too, with an empty list, so that asking again is cheap
+            paths = List.copyOf(makePaths(source));
+            cache.putAndMoveToLast(source, paths);
+            trimCache();
+        }
+
+        return paths;
+    }
+
+    /**
+     * @return Every route as of the last rebuild. A new snapshot with a higher version is published after each
+     *         rebuild, so it's safe to read from any thread and to cache anything derived from it by version. In lazy
+     *         mode it only holds the routes that were cached at the time.
+     */
+    public RouteSnapshot<TNotableElement, TRoutingInfo> getRouteSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Like {@link #getRouteSnapshot()}, but waits for the routes to catch up with every change made so far. This must
+     * be called from the thread that changes the topology, and the future completes on the thread that publishes the
+     * routes, usually the ticking thread.
+     */
+    public CompletableFuture<RouteSnapshot<TNotableElement, TRoutingInfo>> getFreshRouteSnapshot() {
+        if (stale) {
+            if (freshSnapshot == null) freshSnapshot = new CompletableFuture<>();
+            return freshSnapshot;
         }
-        return List.of();
+
+        if (rebuild != null) {
+            if (rebuildSnapshot == null) rebuildSnapshot = new CompletableFuture<>();
+            return rebuildSnapshot;
+        }
+
+        return CompletableFuture.completedFuture(snapshot);
+    }
+
+    @Override
+    public CompletableFuture<List<RoutedNode<TNotableElement, TRoutingInfo>>> getFreshPaths(TNotableElement source) {
+        return getFreshRouteSnapshot().thenApply(fresh -> cache == null ? fresh.getPaths(source) : getPaths(source));
     }
 
     @Override
@@ -34,6 +224,8 @@ public abstract class StandardRouteTracker<TRoutingInfo extends IRoutingInfo<TRo
         if (getNotableElementClass().isInstance(source) && (notableElement = getNotableElementClass().cast(source)).isActuallyNode()){
             notableElements.add(notableElement);
         }
+        changedElements.add(source);
+        stale = true;
     }
 
     @Override
@@ -41,40 +233,413 @@ public abstract class StandardRouteTracker<TRoutingInfo extends IRoutingInfo<TRo
         TNotableElement notableElement;
         if (getNotableElementClass().isInstance(element) && (notableElement = getNotableElementClass().cast(element)).isActuallyNode()){
             notableElements.remove(notableElement);
+            dirtyElements.remove(notableElement);
+            edges.remove(notableElement);
+            unpublished.add(notableElement);
+            if (rebuild != null) discardedSources.add(notableElement);
+        }
+        changedElements.remove(element);
+        stale = true;
+    }
+
+    @Override
+    public void onAdjacencyChanged(TElement element) {
+        changedElements.add(element);
+        stale = true;
+    }
+
+    @Override
+    public void absorb(IRouteTracker<TRoutingInfo, TNotableElement, TElement, TNetwork, TGrid> source, Collection<TElement> elements) {
+        if (!(source instanceof StandardRouteTracker<TRoutingInfo, TNotableElement, TElement, TNetwork, TGrid> other)) {
+            IRouteTracker.super.absorb(source, elements);
+            return;
+        }
+
+        // the absorbed routes stay valid, so they don't have to be rebuilt; they're published with the next rebuild
+        // instead of copying every route on each merge
+        notableElements.addAll(other.notableElements);
+        edges.putAll(other.edges);
+        unpublished.addAll(other.edges.keySet());
+        changedElements.addAll(other.changedElements);
+        dirtyElements.addAll(other.dirtyElements);
+        allDirty |= other.allDirty;
+        other.notableElements.clear();
+        other.edges.clear();
+        other.changedElements.clear();
+        other.dirtyElements.clear();
+        stale = true;
+
+        if (other.rebuild != null) {
+            // the other tracker's background rebuild is thrown away, so its routes are rebuilt here instead
+            other.rebuild.cancel(false);
+
+            for (TNotableElement notableElement : other.rebuildSources) {
+                if (notableElements.contains(notableElement)) dirtyElements.add(notableElement);
+            }
+
+            forward(other.rebuildSnapshot);
+            other.rebuild = null;
+            other.rebuildSources = null;
+            other.rebuildSnapshot = null;
+            other.discardedSources.clear();
+        }
+
+        forward(other.freshSnapshot);
+        other.freshSnapshot = null;
+
+        if (cache != null) trimCache();
+    }
+
+    /**
+     * Completes a future of another tracker along with this tracker's next fresh snapshot.
+     */
+    private void forward(CompletableFuture<RouteSnapshot<TNotableElement, TRoutingInfo>> future) {
+        if (future == null) return;
+
+        getFreshRouteSnapshot().whenComplete((fresh, error) -> {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(fresh);
+            }
+        });
+    }
+
+    /**
+     * Forces the routes of a notable element to be rebuilt on the next update, for routing that depends on more than
+     * the network topology.
+     */
+    public void markDirty(TNotableElement element) {
+        if (notableElements.contains(element)) {
+            dirtyElements.add(element);
+            stale = true;
         }
     }
 
+    /**
+     * Forces every route to be rebuilt on the next update.
+     */
+    public void markAllDirty() {
+        allDirty = true;
+        stale = true;
+    }
+
     @Override
     public void updateEdges() {
-        edges.clear();
+        if (rebuild != null) {
+            // changes made in the meantime wait for the next rebuild
+            if (!rebuild.isDone()) return;
+
+            finishRebuild();
+
+            if (!stale) return;
+        }
+
+        CompletableFuture<RouteSnapshot<TNotableElement, TRoutingInfo>> waiting = freshSnapshot;
+        stale = false;
+        freshSnapshot = null;
+
+        if (allDirty || network == null || network.getGrid() == null) {
+            // we can't tell which routes are affected, so rebuild all of them
+            allDirty = false;
+            edges.clear();
+            republishAll = true;
+            dirtyElements.addAll(notableElements);
+        } else {
+            collectDirtyElements();
+        }
+        changedElements.clear();
+
+        if (shouldRebuildAsync()) {
+            startRebuild(waiting);
+            return;
+        }
+
+        for (TNotableElement notableElement : dirtyElements) {
+            if (cache != null) {
+                // lazy trackers only forget the affected routes; they're computed again when they're asked for
+                cache.remove(notableElement);
+                continue;
+            }
 
-        for (TNotableElement notableElement : notableElements) {
             List<RoutedNode<TNotableElement, TRoutingInfo>> paths = makePaths(notableElement);
             if (!paths.isEmpty()) {
+                paths.replaceAll(pool::intern);
                 edges.put(notableElement, paths);
+            } else {
+                edges.remove(notableElement);
             }
+            unpublished.add(notableElement);
         }
-        ObjectOpenHashSet<RoutedNode<TNotableElement, TRoutingInfo>> uniqueNodes = new ObjectOpenHashSet<>();
-        for (TNotableElement notableElement : notableElements){
-            if (edges.containsKey(notableElement)){
-                List<RoutedNode<TNotableElement, TRoutingInfo>> list = edges.get(notableElement);
-                for (int j = 0; j < list.size(); j++) {
-                    RoutedNode<TNotableElement, TRoutingInfo> node = list.get(j);
-                    if (!uniqueNodes.add(list.get(j))){
-                        list.set(j, uniqueNodes.get(node));
+        dirtyElements.clear();
+
+        publish();
+        if (waiting != null) waiting.complete(snapshot);
+    }
+
+    private boolean shouldRebuildAsync() {
+        if (asyncExecutor == null || cache != null || dirtyElements.isEmpty()) return false;
+
+        return network != null && network.getGrid() != null && network.getElements()
+                .size() >= asyncThreshold;
+    }
+
+    /**
+     * Takes the dirty routes and a copy of the adjacency they're found in, then computes them on the async executor.
+     */
+    private void startRebuild(CompletableFuture<RouteSnapshot<TNotableElement, TRoutingInfo>> waiting) {
+        List<TNotableElement> sources = List.copyOf(dirtyElements);
+        dirtyElements.clear();
+
+        HashMap<TElement, List<TElement>> adjacency = copyReachableAdjacency(sources);
+
+        rebuildSources = sources;
+        rebuildSnapshot = waiting;
+        // the task owns its copy of the adjacency, so it stays valid even if this tracker is absorbed or cancelled
+        rebuild = CompletableFuture.supplyAsync(() -> {
+            Map<?, ? extends Collection<?>> previous = REBUILD_ADJACENCY.get();
+            List<List<RoutedNode<TNotableElement, TRoutingInfo>>> paths = new ArrayList<>(sources.size());
+
+            REBUILD_ADJACENCY.set(adjacency);
+
+            try {
+                for (TNotableElement source : sources) {
+                    paths.add(makePaths(source));
+                }
+            } finally {
+                REBUILD_ADJACENCY.set(previous);
+            }
+
+            return paths;
+        }, asyncExecutor);
+    }
+
+    /**
+     * Copies the adjacency of every element that routes from the sources can reach, i.e. everything up to and including
+     * the first route boundary on each path. That's all a search from the sources can ask {@link #getAdjacent} for, so
+     * a small change in a big network only copies the part of it around the change.
+     */
+    private HashMap<TElement, List<TElement>> copyReachableAdjacency(List<TNotableElement> sources) {
+        TGrid grid = network.getGrid();
+        HashMap<TElement, List<TElement>> adjacency = new HashMap<>();
+
+        for (TNotableElement source : sources) {
+            TElement start = network.getElementClass()
+                    .cast(source);
+
+            queue.add(start);
+
+            while (!queue.isEmpty()) {
+                TElement current = queue.removeFirst();
+                List<TElement> adjacent = adjacency.get(current);
+
+                // a source may have been reached as another source's boundary already, but it still has to be
+                // searched from
+                if (adjacent == null) {
+                    adjacent = List.copyOf(grid.getAdjacent(current));
+                    adjacency.put(current, adjacent);
+                } else if (current != start) {
+                    continue;
+                }
+
+                if (current != start && isRouteBoundary(current)) continue;
+
+                for (TElement next : adjacent) {
+                    if (!adjacency.containsKey(next)) queue.add(next);
+                }
+            }
+        }
+
+        return adjacency;
+    }
+
+    /**
+     * Publishes the routes of a finished background rebuild. Sources that left the network in the meantime are left
+     * out, even if they came back; routes affected by other changes are rebuilt by the next update.
+     * If the rebuild failed, the failure is logged and the previous routes stay up until the sources are rebuilt again.
+     */
+    private void finishRebuild() {
+        List<TNotableElement> sources = rebuildSources;
+        CompletableFuture<RouteSnapshot<TNotableElement, TRoutingInfo>> waiting = rebuildSnapshot;
+        List<List<RoutedNode<TNotableElement, TRoutingInfo>>> paths;
+
+        try {
+            paths = rebuild.join();
+        } catch (RuntimeException e) {
+            StandardGrid.LOGGER.error("Rebuilding the routes of " + sources.size() + " notable elements in the background failed, so they'll be rebuilt again", e);
+
+            // the routes that were being rebuilt are still out of date, so whoever is waiting for them waits for the
+            // next rebuild instead
+            for (TNotableElement source : sources) {
+                if (notableElements.contains(source)) dirtyElements.add(source);
+            }
+
+            discardedSources.clear();
+
+            stale = true;
+            forward(waiting);
+            return;
+        } finally {
+            rebuild = null;
+            rebuildSources = null;
+            rebuildSnapshot = null;
+            onBackgroundRebuildFinished();
+        }
+
+        for (int i = 0; i < sources.size(); i++) {
+            TNotableElement source = sources.get(i);
+            List<RoutedNode<TNotableElement, TRoutingInfo>> sourcePaths = paths.get(i);
+
+            if (!notableElements.contains(source) || discardedSources.contains(source)) continue;
+
+            if (!sourcePaths.isEmpty()) {
+                sourcePaths.replaceAll(pool::intern);
+                edges.put(source, sourcePaths);
+            } else {
+                edges.remove(source);
+            }
+            unpublished.add(source);
+        }
+
+        discardedSources.clear();
+        publish();
+        if (waiting != null) waiting.complete(snapshot);
+    }
+
+    /**
+     * Called on the ticking thread once a background rebuild is done, before its routes are published. Subclasses can
+     * catch up on state that they didn't touch while {@link #makePaths} was running.
+     */
+    protected void onBackgroundRebuildFinished() {
+
+    }
+
+    private void trimCache() {
+        while (cache.size() > cacheCapacity) {
+            cache.removeFirst();
+        }
+    }
+
+    /**
+     * Swaps in a snapshot of the current routes. Only the routes that changed since the last snapshot are copied again.
+     */
+    private void publish() {
+        // lazy trackers change their cache whenever routes are asked for, so they always look at every source
+        if (cache != null || republishAll) {
+            unpublished.addAll(edges.keySet());
+
+            for (int i = 0; i < snapshot.size(); i++) {
+                unpublished.add(snapshot.getSource(i));
+            }
+        }
+
+        snapshot = RouteSnapshot.update(snapshot, ++version, edges, unpublished, pool);
+        unpublished.clear();
+        republishAll = false;
+    }
+
+    /**
+     * Walks outwards from every changed element until notable elements are reached.
+     * Those are the only elements whose routes can pass through the changed elements, since routes end at the first
+     * route boundary they find.
+     */
+    private void collectDirtyElements() {
+        TGrid grid = network.getGrid();
+
+        for (TElement changed : changedElements) {
+            if (changed.getNetwork() != network || !visited.add(changed)) continue;
+
+            queue.add(changed);
+
+            while (!queue.isEmpty()) {
+                TElement current = queue.removeFirst();
+
+                if (getNotableElementClass().isInstance(current)) {
+                    TNotableElement notableElement = getNotableElementClass().cast(current);
+
+                    if (notableElements.contains(notableElement)) dirtyElements.add(notableElement);
+                }
+
+                // routes can't pass through boundaries, so there's no need to look past them, unless the boundary
+                // itself changed
+                if (current != changed && isRouteBoundary(current)) continue;
+
+                for (TElement next : grid.getAdjacent(current)) {
+                    if (next.getNetwork() == network && visited.add(next)) {
+                        queue.add(next);
                     }
                 }
             }
         }
+
+        visited.clear();
+    }
+
+    /**
+     * @return The elements adjacent to an element of the network. {@link #makePaths} should use this instead of asking
+     *         the grid, since background rebuilds see the adjacency as of when they started.
+     * @throws IllegalStateException If this is called outside a background rebuild while one is running, since the
+     *                               live adjacency must not be read until it's done.
+     */
+    @SuppressWarnings("unchecked")
+    protected Collection<TElement> getAdjacent(TElement element) {
+        Map<TElement, ? extends Collection<TElement>> adjacency = (Map<TElement, ? extends Collection<TElement>>) REBUILD_ADJACENCY.get();
+
+        if (adjacency != null) {
+            Collection<TElement> adjacent = adjacency.get(element);
+
+            return adjacent == null ? List.of() : adjacent;
+        }
+
+        if (rebuild != null && !rebuild.isDone()) {
+            throw new IllegalStateException("The live adjacency of " + element + " was read while routes are rebuilt in the background");
+        }
+
+        return network.getGrid()
+                .getAdjacent(element);
+    }
+
+    /**
+     * Routes are expected to stop at boundary elements instead of passing through them; this is what keeps route
+     * invalidation local. Override this to return false if your routes pass through notable elements.
+     */
+    protected boolean isRouteBoundary(TElement element) {
+        return getNotableElementClass().isInstance(element) && getNotableElementClass().cast(element).isActuallyNode();
     }
 
     public abstract int sort(RoutedNode<TNotableElement, TRoutingInfo> a, RoutedNode<TNotableElement, TRoutingInfo> b);
 
     public abstract Class<TNotableElement> getNotableElementClass();
 
-    private List<RoutedNode<TNotableElement, TRoutingInfo>> makePaths(TNotableElement source) {
+    /**
+     * Computes the sorted routes of a single notable element.
+     *
+     * @return A mutable list; its routes are replaced with interned copies.
+     */
+    protected List<RoutedNode<TNotableElement, TRoutingInfo>> makePaths(TNotableElement source) {
         List<RoutedNode<TNotableElement, TRoutingInfo>> sourcePaths = new ArrayList<>(source.getRoutedNeighbours());
         sourcePaths.sort(this::sort);
         return sourcePaths;
     }
+
+    private static final class AsyncExecutorHolder {
+        private static final Executor EXECUTOR = create();
+
+        private static Executor create() {
+            try {
+                // virtual threads need Java 21, and this has to run on 17
+                return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+                        .invoke(null);
+            } catch (ReflectiveOperationException e) {
+                AtomicInteger count = new AtomicInteger();
+
+                return Executors.newFixedThreadPool(Math.max(1, Math.min(4, Runtime.getRuntime()
+                        .availableProcessors() - 1)), runnable -> {
+                    Thread thread = new Thread(runnable, "Route Rebuild " + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+    }
 }
@@ -0,0 +1,179 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * The binary format of a saved grid topology.
+ * Elements are numbered in file order. The file holds the id and network of each element and the neighbours of each
+ * element as element numbers, followed by a checksum:
+ * <pre>
+ * int magic, int version, int elementCount, int networkCount, int edgeCount
+ * long[elementCount] ids
+ * int[elementCount] networks
+ * int[elementCount + 1] edgeOffsets; the neighbours of element i are edges[edgeOffsets[i]] up to edges[edgeOffsets[i + 1]]
+ * int[edgeCount] edges
+ * long crc32 of everything above
+ * </pre>
+ */
+final class TopologyFile {
+
+    private static final int MAGIC = 0x54475443;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 5 * Integer.BYTES;
+
+    final long[] ids;
+    final int[] networks;
+    final int networkCount;
+    final int[] edgeOffsets;
+    final int[] edges;
+
+    TopologyFile(long[] ids, int[] networks, int networkCount, int[] edgeOffsets, int[] edges) {
+        this.ids = ids;
+        this.networks = networks;
+        this.networkCount = networkCount;
+        this.edgeOffsets = edgeOffsets;
+        this.edges = edges;
+    }
+
+    /**
+     * Writes to a temporary file first, so a crash while saving never leaves a broken file behind.
+     */
+    void write(Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ChunkWriter writer = new ChunkWriter(channel);
+
+            writer.putInt(MAGIC);
+            writer.putInt(VERSION);
+            writer.putInt(ids.length);
+            writer.putInt(networkCount);
+            writer.putInt(edges.length);
+
+            for (long id : ids) writer.putLong(id);
+            for (int network : networks) writer.putInt(network);
+            for (int offset : edgeOffsets) writer.putInt(offset);
+            for (int edge : edges) writer.putInt(edge);
+
+            writer.finish();
+        }
+
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return The topology in the file, or null if it's missing, from another format version, or damaged.
+     */
+    static TopologyFile read(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) return null;
+
+        ByteBuffer buffer;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if (size < HEADER_SIZE + Long.BYTES || size > Integer.MAX_VALUE) return null;
+
+            buffer = ByteBuffer.allocate((int) size);
+
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) return null;
+            }
+        }
+
+        buffer.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, buffer.limit() - Long.BYTES));
+
+        if (crc.getValue() != buffer.getLong(buffer.limit() - Long.BYTES)) return null;
+
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return null;
+
+        int elementCount = buffer.getInt();
+        int networkCount = buffer.getInt();
+        int edgeCount = buffer.getInt();
+        long expected = HEADER_SIZE + (long) elementCount * (Long.BYTES + 2 * Integer.BYTES) + Integer.BYTES
+                + (long) edgeCount * Integer.BYTES + Long.BYTES;
+
+        if (elementCount < 0 || networkCount < 0 || edgeCount < 0 || expected != buffer.limit()) return null;
+
+        long[] ids = new long[elementCount];
+        int[] networks = new int[elementCount];
+        int[] edgeOffsets = new int[elementCount + 1];
+        int[] edges = new int[edgeCount];
+
+        buffer.asLongBuffer().get(ids);
+        buffer.position(buffer.position() + elementCount * Long.BYTES);
+        buffer.asIntBuffer().get(networks);
+        buffer.position(buffer.position() + elementCount * Integer.BYTES);
+        buffer.asIntBuffer().get(edgeOffsets);
+        buffer.position(buffer.position() + (elementCount + 1) * Integer.BYTES);
+        buffer.asIntBuffer().get(edges);
+
+        if (edgeOffsets[0] != 0 || edgeOffsets[elementCount] != edgeCount) return null;
+
+        for (int i = 0; i < elementCount; i++) {
+            if (networks[i] < 0 || networks[i] >= networkCount || edgeOffsets[i] > edgeOffsets[i + 1]) return null;
+        }
+
+        for (int edge : edges) {
+            if (edge < 0 || edge >= elementCount) return null;
+        }
+
+        return new TopologyFile(ids, networks, networkCount, edgeOffsets, edges);
+    }
+
+    /**
+     * Writes through a small buffer and checksums everything it writes.
+     */
+    private static final class ChunkWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        private final CRC32 crc = new CRC32();
+
+        private ChunkWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void putInt(int value) throws IOException {
+            if (buffer.remaining() < Integer.BYTES) flush();
+
+            buffer.putInt(value);
+        }
+
+        private void putLong(long value) throws IOException {
+            if (buffer.remaining() < Long.BYTES) flush();
+
+            buffer.putLong(value);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            buffer.clear();
+        }
+
+        private void finish() throws IOException {
+            flush();
+            buffer.putLong(crc.getValue());
+            buffer.flip();
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactGridStorageTest {
+
+    private final CompactGridStorage<String> storage = new CompactGridStorage<>();
+
+    private List<String> setNeighbours(String element, String... neighbours) {
+        List<String> old = new ArrayList<>();
+
+        storage.setNeighbours(element, List.of(neighbours), old);
+        return old;
+    }
+
+    private static Set<String> neighbours(GridStorage<String> storage, String element) {
+        Set<String> neighbours = new HashSet<>(storage.getNeighbours(element));
+        Set<String> copied = new HashSet<>();
+
+        storage.getNeighbours(element, copied);
+        assertEquals(neighbours, copied);
+        return neighbours;
+    }
+
+    @Test
+    void idsOfRemovedVerticesAreNotReusedWhileReferenced() {
+        storage.add("a");
+        storage.add("b");
+        setNeighbours("a", "b");
+
+        List<String> old = new ArrayList<>();
+
+        assertTrue(storage.remove("b", old));
+        assertTrue(old.isEmpty());
+
+        // a still points at b until it's updated, so c can't take over the id of b
+        storage.add("c");
+
+        assertEquals(Set.of("b"), neighbours(storage, "a"));
+        assertFalse(storage.hasEdge("a", "c"));
+
+        assertEquals(List.of("b"), setNeighbours("a"));
+
+        // now the id of b is free again, and whoever gets it starts without edges
+        storage.add("d");
+        setNeighbours("a", "c", "d");
+
+        assertEquals(Set.of("c", "d"), neighbours(storage, "a"));
+        assertTrue(neighbours(storage, "d").isEmpty());
+        assertEquals(3, storage.size());
+    }
+
+    @Test
+    void verticesThatPointAtThemselvesAreOnlyRecycledOnce() {
+        storage.add("a");
+        setNeighbours("a", "a");
+        storage.remove("a", new ArrayList<>());
+
+        storage.add("b");
+        storage.add("c");
+        setNeighbours("b", "c");
+
+        assertEquals(Set.of("c"), neighbours(storage, "b"));
+        assertTrue(neighbours(storage, "c").isEmpty());
+    }
+
+    @Test
+    void neighboursOfUnregisteredVerticesAreDropped() {
+        storage.add("a");
+        setNeighbours("a", "b");
+
+        assertTrue(neighbours(storage, "a").isEmpty());
+
+        // setting the edges of a vertex that isn't registered does nothing
+        setNeighbours("b", "a");
+
+        assertFalse(storage.contains("b"));
+        assertTrue(neighbours(storage, "b").isEmpty());
+    }
+
+    @Test
+    void behavesLikeTheHashStorage() {
+        Random random = new Random(7);
+        HashGridStorage<String> expected = new HashGridStorage<>();
+        List<String> names = new ArrayList<>();
+
+        for (int i = 0; i < 200; i++) {
+            names.add("v" + i);
+        }
+
+        // enough churn to regrow blocks and compact the block array many times over
+        for (int step = 0; step < 50000; step++) {
+            String element = names.get(random.nextInt(names.size()));
+
+            switch (random.nextInt(4)) {
+                case 0 -> assertEquals(expected.add(element), storage.add(element));
+                case 1 -> {
+                    Set<String> expectedOld = new HashSet<>();
+                    Set<String> old = new HashSet<>();
+
+                    assertEquals(expected.remove(element, expectedOld), storage.remove(element, old));
+                    assertEquals(expectedOld, old);
+                }
+                default -> {
+                    Set<String> neighbours = new HashSet<>();
+
+                    for (int i = random.nextInt(12); i > 0; i--) {
+                        neighbours.add(names.get(random.nextInt(names.size())));
+                    }
+
+                    // only registered vertices can be neighbours
+                    neighbours.removeIf(neighbour -> !expected.contains(neighbour));
+
+                    Set<String> expectedOld = new HashSet<>();
+                    Set<String> old = new HashSet<>();
+
+                    expected.setNeighbours(element, neighbours, expectedOld);
+                    storage.setNeighbours(element, neighbours, old);
+                    assertEquals(expectedOld, old);
+                }
+            }
+        }
+
+        assertEquals(expected.size(), storage.size());
+        assertEquals(new HashSet<>(expected.getVertices()), new HashSet<>(storage.getVertices()));
+
+        for (String element : names) {
+            assertEquals(neighbours(expected, element), neighbours(storage, element), element);
+
+            for (String other : names) {
+                assertEquals(expected.hasEdge(element, other), storage.hasEdge(element, other));
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ComponentRegistryTest {
+
+    interface Handler {
+
+    }
+
+    interface Sink extends Handler {
+
+    }
+
+    interface Source extends Handler {
+
+    }
+
+    static final class Machine implements Sink, Source {
+
+    }
+
+    @Test
+    void duplicateAddsAreRemovedAtOnce() {
+        ComponentRegistry registry = new ComponentRegistry();
+        Machine machine = new Machine();
+
+        registry.add(Sink.class, machine);
+        registry.add(Sink.class, machine);
+
+        assertEquals(List.of(machine), registry.get(Sink.class));
+
+        registry.remove(Sink.class, machine);
+
+        assertTrue(registry.get(Sink.class).isEmpty());
+        assertTrue(registry.get(Handler.class).isEmpty());
+        assertTrue(registry.getTypes().isEmpty());
+    }
+
+    @Test
+    void componentsStayUntilRemovedUnderEveryInterface() {
+        ComponentRegistry registry = new ComponentRegistry();
+        Machine machine = new Machine();
+
+        registry.add(Sink.class, machine);
+        registry.add(Source.class, machine);
+        registry.remove(Sink.class, machine);
+
+        assertTrue(registry.get(Sink.class).isEmpty());
+        assertEquals(List.of(machine), registry.get(Source.class));
+        assertEquals(List.of(machine), registry.get(Handler.class));
+
+        registry.remove(Source.class, machine);
+
+        assertTrue(registry.get(Handler.class).isEmpty());
+    }
+
+    @Test
+    void removingAComponentThatWasNeverAddedDoesNothing() {
+        ComponentRegistry registry = new ComponentRegistry();
+        Machine machine = new Machine();
+
+        registry.add(Sink.class, machine);
+        registry.remove(Source.class, machine);
+
+        assertEquals(List.of(machine), registry.get(Handler.class));
+    }
+
+    @Test
+    void absorbingSharedComponentsCountsThemOnce() {
+        ComponentRegistry registry = new ComponentRegistry();
+        ComponentRegistry other = new ComponentRegistry();
+        Machine machine = new Machine();
+
+        registry.add(Sink.class, machine);
+        other.add(Sink.class, machine);
+        registry.absorb(other);
+
+        assertTrue(other.getTypes().isEmpty());
+        assertEquals(List.of(machine), registry.get(Sink.class));
+
+        registry.remove(Sink.class, machine);
+
+        assertTrue(registry.getTypes().isEmpty());
+    }
+
+    @Test
+    void mapViewFollowsTheRegistry() {
+        ComponentRegistry registry = new ComponentRegistry();
+        Machine machine = new Machine();
+
+        registry.add(Sink.class, machine);
+
+        assertEquals(List.of(machine), registry.asMap().get(Handler.class));
+        assertEquals(2, registry.asMap().size());
+
+        registry.remove(Sink.class, machine);
+
+        assertTrue(registry.asMap().isEmpty());
+    }
+}
@@ -0,0 +1,137 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ComponentSearchTest {
+
+    private final HashGridStorage<String> storage = new HashGridStorage<>();
+
+    private void connect(String a, String b) {
+        // segments compare vertices by identity, like grid elements
+        a = a.intern();
+        b = b.intern();
+        storage.add(a);
+        storage.add(b);
+        setEdge(a, b, true);
+        setEdge(b, a, true);
+    }
+
+    private void line(String prefix, int length) {
+        for (int i = 1; i < length; i++) {
+            connect(prefix + (i - 1), prefix + i);
+        }
+    }
+
+    private void setEdge(String from, String to, boolean present) {
+        Set<String> neighbours = new HashSet<>(storage.getNeighbours(from));
+
+        if (present) neighbours.add(to);
+        else neighbours.remove(to);
+
+        storage.setNeighbours(from, neighbours, new ArrayList<>());
+    }
+
+    /**
+     * Removes a vertex like the grid does, returning its former neighbours.
+     */
+    private List<String> remove(String element, SegmentIndex<String> segments) {
+        List<String> neighbours = new ArrayList<>();
+
+        storage.remove(element, neighbours);
+        if (segments != null) segments.forget(element);
+
+        for (String neighbour : neighbours) {
+            setEdge(neighbour, element, false);
+            if (segments != null) segments.onEdgesChanged(neighbour, List.of(element));
+        }
+
+        return neighbours;
+    }
+
+    private static Set<String> names(String prefix, int length) {
+        Set<String> names = new HashSet<>();
+
+        for (int i = 0; i < length; i++) {
+            names.add(prefix + i);
+        }
+
+        return names;
+    }
+
+    @Test
+    void cuttingALineDetachesTheShorterEnd() {
+        line("a", 10);
+
+        List<List<String>> clumps = new ComponentSearch<>(storage).findDetachedClumps(remove("a3", null), 1, null);
+
+        assertEquals(1, clumps.size());
+        assertEquals(Set.of("a0", "a1", "a2"), new HashSet<>(clumps.get(0)));
+    }
+
+    @Test
+    void cuttingARingDetachesNothing() {
+        line("a", 10);
+        connect("a9", "a0");
+
+        assertTrue(new ComponentSearch<>(storage).findDetachedClumps(remove("a5", null), 1, null)
+                .isEmpty());
+    }
+
+    @Test
+    void theBiggestClumpStaysWhenEverySearchFinishes() {
+        line("a", 2);
+        line("b", 3);
+        line("c", 5);
+        connect("hub", "a0");
+        connect("hub", "b0");
+        connect("hub", "c0");
+
+        List<List<String>> clumps = new ComponentSearch<>(storage).findDetachedClumps(remove("hub", null), 1, null);
+        Set<Set<String>> found = new HashSet<>();
+
+        for (List<String> clump : clumps) {
+            found.add(new HashSet<>(clump));
+        }
+
+        assertEquals(Set.of(names("a", 2), names("b", 3)), found);
+    }
+
+    @Test
+    void claimedSegmentsAreListedWithTheirClump() {
+        SegmentIndex<String> segments = new SegmentIndex<>(storage);
+
+        // a small loop with a long pipe to the hub, and a longer line behind the hub
+        line("loop", 4);
+        connect("loop3", "loop0");
+        line("pipe", 20);
+        connect("loop0", "pipe0");
+        connect("pipe19", "hub");
+        line("rest", 60);
+        connect("hub", "rest0");
+
+        Set<String> left = new HashSet<>(storage.getVertices());
+
+        left.removeAll(names("rest", 60));
+        segments.learn(left, left::contains);
+
+        assertNotNull(segments.get("pipe10"));
+
+        List<List<String>> clumps = new ComponentSearch<>(storage).findDetachedClumps(remove("rest0", segments), 1, segments);
+
+        // the pipe kept its segment, since only the far side of its end changed
+        assertNotNull(segments.get("pipe10"));
+        assertEquals(1, clumps.size());
+        assertEquals(left, new HashSet<>(clumps.get(0)));
+        assertEquals(left.size(), clumps.get(0)
+                .size());
+    }
+}
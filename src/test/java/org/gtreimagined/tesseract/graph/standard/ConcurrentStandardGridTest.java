@@ -0,0 +1,224 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import org.gtreimagined.tesseract.graph.INotableElement;
+import org.gtreimagined.tesseract.graph.IRouteTracker;
+import org.gtreimagined.tesseract.graph.RoutedNode;
+import org.gtreimagined.tesseract.graph.testing.BlockRoutingInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentStandardGridTest {
+
+    /**
+     * An element with explicit links, which are set up before it's added to the grid.
+     */
+    static final class Node implements INotableElement<Node, BlockRoutingInfo, Node, NodeNetwork, NodeGrid> {
+        final Set<Node> links = new HashSet<>();
+        final boolean notable;
+        private NodeNetwork network;
+
+        Node(boolean notable) {
+            this.notable = notable;
+        }
+
+        @Override
+        public void getNeighbours(Collection<Node> neighbours) {
+            neighbours.addAll(links);
+        }
+
+        @Override
+        public NodeNetwork getNetwork() {
+            return network;
+        }
+
+        @Override
+        public void setNetwork(NodeNetwork network) {
+            this.network = network;
+        }
+
+        @Override
+        public List<RoutedNode<Node, BlockRoutingInfo>> getRoutedNeighbours() {
+            List<RoutedNode<Node, BlockRoutingInfo>> paths = new ArrayList<>();
+            HashMap<Node, Integer> distances = new HashMap<>();
+            ArrayDeque<Node> queue = new ArrayDeque<>();
+
+            distances.put(this, 0);
+            queue.add(this);
+
+            while (!queue.isEmpty()) {
+                Node current = queue.removeFirst();
+                int distance = distances.get(current);
+
+                if (current != this && current.notable) {
+                    paths.add(new RoutedNode<>(current, new BlockRoutingInfo(distance)));
+                    continue;
+                }
+
+                for (Node neighbour : current.links) {
+                    if (distances.putIfAbsent(neighbour, distance + 1) == null) queue.add(neighbour);
+                }
+            }
+
+            return paths;
+        }
+
+        @Override
+        public boolean isActuallyNode() {
+            return notable;
+        }
+    }
+
+    static final class NodeNetwork extends StandardNetwork<NodeNetwork, Node, Node, BlockRoutingInfo, NodeGrid> {
+        NodeNetwork() {
+            super(Node.class, Node.class);
+        }
+
+        @Override
+        protected IRouteTracker<BlockRoutingInfo, Node, Node, NodeNetwork, NodeGrid> createRouteTracker() {
+            return new StandardRouteTracker<>() {
+                @Override
+                public int sort(RoutedNode<Node, BlockRoutingInfo> a, RoutedNode<Node, BlockRoutingInfo> b) {
+                    return Integer.compare(a.routeInfo().distance(), b.routeInfo().distance());
+                }
+
+                @Override
+                public Class<Node> getNotableElementClass() {
+                    return Node.class;
+                }
+            };
+        }
+    }
+
+    static final class NodeGrid extends ConcurrentStandardGrid<NodeGrid, Node, Node, BlockRoutingInfo, NodeNetwork> {
+        @Override
+        protected NodeNetwork createNetwork() {
+            return new NodeNetwork();
+        }
+    }
+
+    /**
+     * @return A line of linked nodes with a notable node at either end.
+     */
+    private static List<Node> chain(int length) {
+        List<Node> chain = new ArrayList<>();
+
+        for (int i = 0; i < length; i++) {
+            Node node = new Node(i == 0 || i == length - 1);
+
+            if (i > 0) {
+                node.links.add(chain.get(i - 1));
+                chain.get(i - 1).links.add(node);
+            }
+
+            chain.add(node);
+        }
+
+        return chain;
+    }
+
+    @Test
+    void changesFromOtherThreadsWaitForTheNextFlush() throws InterruptedException {
+        NodeGrid grid = new NodeGrid();
+        List<List<Node>> chains = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < 4; i++) {
+            List<Node> chain = chain(50);
+
+            chains.add(chain);
+            threads.add(new Thread(() -> chain.forEach(grid::addElement)));
+        }
+
+        threads.forEach(Thread::start);
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(grid.hasPendingChanges());
+        assertEquals(0, grid.storage.size());
+        assertTrue(grid.getNetworkSnapshot()
+                .isEmpty());
+
+        grid.flush();
+
+        assertFalse(grid.hasPendingChanges());
+        assertEquals(200, grid.storage.size());
+        assertEquals(4, grid.getNetworkSnapshot()
+                .size());
+
+        for (List<Node> chain : chains) {
+            Node first = chain.get(0);
+            NodeNetwork network = first.getNetwork();
+
+            assertEquals(new HashSet<>(chain), new HashSet<>(grid.getElements(network)));
+
+            // routes aren't rebuilt until the next tick
+            assertTrue(grid.getPaths(network, first)
+                    .isEmpty());
+        }
+
+        grid.tick();
+
+        for (List<Node> chain : chains) {
+            Node first = chain.get(0);
+
+            assertEquals(List.of(new RoutedNode<>(chain.get(49), new BlockRoutingInfo(49))), grid.getPaths(first.getNetwork(), first));
+        }
+    }
+
+    @Test
+    void snapshotsDontChangeUnderReaders() {
+        NodeGrid grid = new NodeGrid();
+        List<Node> left = chain(10);
+        List<Node> right = chain(10);
+
+        left.forEach(grid::addElement);
+        right.forEach(grid::addElement);
+        grid.tick();
+
+        NodeNetwork network = left.get(0)
+                .getNetwork();
+        List<Node> before = grid.getElements(network);
+        List<Node> untouched = grid.getElements(right.get(0)
+                .getNetwork());
+        RouteSnapshot<Node, BlockRoutingInfo> routes = grid.getRoutes(network);
+
+        // the test thread isn't the writer, so this is queued like any other change
+        left.get(8).links.remove(left.get(9));
+        grid.removeElement(left.get(9));
+
+        assertEquals(20, grid.storage.size());
+
+        grid.flush();
+
+        assertEquals(10, before.size());
+        assertEquals(9, grid.getElements(network)
+                .size());
+        assertSame(untouched, grid.getElements(right.get(0)
+                .getNetwork()));
+        // a flush doesn't rebuild routes
+        assertSame(routes, grid.getRoutes(network));
+
+        grid.tick();
+
+        assertNotSame(routes, grid.getRoutes(network));
+        assertTrue(grid.getPaths(network, left.get(0))
+                .isEmpty());
+        assertEquals(1, routes.getPaths(left.get(0))
+                .size());
+    }
+}
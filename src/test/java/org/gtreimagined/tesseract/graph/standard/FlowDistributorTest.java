@@ -0,0 +1,245 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import org.gtreimagined.tesseract.graph.IFlowSink;
+import org.gtreimagined.tesseract.graph.IFlowSource;
+import org.gtreimagined.tesseract.graph.IRoutingInfo;
+import org.gtreimagined.tesseract.graph.RoutedNode;
+import org.gtreimagined.tesseract.graph.testing.BlockElement;
+import org.gtreimagined.tesseract.graph.testing.BlockNetwork;
+import org.gtreimagined.tesseract.graph.testing.BlockRoutingInfo;
+import org.gtreimagined.tesseract.graph.testing.BlockWorld;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+class FlowDistributorTest {
+
+    interface PowerSource extends IFlowSource<String> {
+
+    }
+
+    interface PowerSink extends IFlowSink<String> {
+
+    }
+
+    interface MachineSource extends IFlowSource<BlockElement> {
+
+    }
+
+    interface ItemSink extends IFlowSink<BlockElement> {
+
+    }
+
+    interface FluidSink extends IFlowSink<BlockElement> {
+
+    }
+
+    record Pipe(long capacity) implements IRoutingInfo<Pipe> {
+        @Override
+        public Pipe merge(Pipe other) {
+            return new Pipe(Math.min(capacity, other.capacity));
+        }
+
+        @Override
+        public long getCapacity() {
+            return capacity;
+        }
+    }
+
+    static final class Battery implements PowerSource {
+        final String node;
+        final long offer;
+        long extracted = 0;
+
+        Battery(String node, long offer) {
+            this.node = node;
+            this.offer = offer;
+        }
+
+        @Override
+        public String getFlowNode() {
+            return node;
+        }
+
+        @Override
+        public long getOffer() {
+            return offer;
+        }
+
+        @Override
+        public void extract(long amount) {
+            extracted += amount;
+        }
+    }
+
+    static final class Lamp implements PowerSink {
+        final String node;
+        final long demand;
+        long received = 0;
+
+        Lamp(String node, long demand) {
+            this.node = node;
+            this.demand = demand;
+        }
+
+        @Override
+        public String getFlowNode() {
+            return node;
+        }
+
+        @Override
+        public long getDemand() {
+            return demand;
+        }
+
+        @Override
+        public void receive(long amount) {
+            received += amount;
+        }
+    }
+
+    /**
+     * Remembers every distributor that ran.
+     */
+    static final class CountingDistributor extends FlowDistributor<BlockElement, BlockRoutingInfo> {
+        final List<CountingDistributor> runs;
+        final Class<? extends IFlowSink<BlockElement>> sinkClass;
+
+        CountingDistributor(List<CountingDistributor> runs, Class<? extends IFlowSink<BlockElement>> sinkClass) {
+            super(MachineSource.class, sinkClass);
+            this.runs = runs;
+            this.sinkClass = sinkClass;
+        }
+
+        @Override
+        public long distribute(ComponentRegistry components, Function<BlockElement, List<RoutedNode<BlockElement, BlockRoutingInfo>>> routes) {
+            runs.add(this);
+            return super.distribute(components, routes);
+        }
+
+        @Override
+        public FlowDistributor<BlockElement, BlockRoutingInfo> copy() {
+            return new CountingDistributor(runs, sinkClass);
+        }
+    }
+
+    private final Map<String, List<RoutedNode<String, Pipe>>> routes = new HashMap<>();
+
+    private void route(String from, String to, long capacity) {
+        routes.computeIfAbsent(from, k -> new ArrayList<>())
+                .add(new RoutedNode<>(to, new Pipe(capacity)));
+    }
+
+    private long distribute(FlowDistributor<String, Pipe> distributor, ComponentRegistry components) {
+        return distributor.distribute(components, source -> routes.getOrDefault(source, List.of()));
+    }
+
+    @Test
+    void routesCarryAtMostTheirCapacity() {
+        ComponentRegistry components = new ComponentRegistry();
+        Battery battery = new Battery("a", 100);
+        Lamp near = new Lamp("b", 100);
+        Lamp far = new Lamp("c", 100);
+
+        components.add(PowerSource.class, battery);
+        components.add(PowerSink.class, near);
+        components.add(PowerSink.class, far);
+        route("a", "b", 30);
+        route("a", "c", 50);
+
+        assertEquals(80, distribute(new FlowDistributor<>(PowerSource.class, PowerSink.class), components));
+        assertEquals(80, battery.extracted);
+        assertEquals(30, near.received);
+        assertEquals(50, far.received);
+    }
+
+    @Test
+    void sinksOnOneNodeShareTheRouteCapacity() {
+        ComponentRegistry components = new ComponentRegistry();
+        Battery battery = new Battery("a", 100);
+        Lamp first = new Lamp("b", 20);
+        Lamp second = new Lamp("b", 20);
+
+        components.add(PowerSource.class, battery);
+        components.add(PowerSink.class, first);
+        components.add(PowerSink.class, second);
+        route("a", "b", 30);
+
+        assertEquals(30, distribute(new FlowDistributor<>(PowerSource.class, PowerSink.class), components));
+        assertEquals(30, first.received + second.received);
+        assertEquals(30, battery.extracted);
+    }
+
+    @Test
+    void firstSourceRotatesEveryTick() {
+        ComponentRegistry components = new ComponentRegistry();
+        Battery left = new Battery("a", 10);
+        Battery right = new Battery("b", 10);
+        Lamp lamp = new Lamp("c", 10);
+        FlowDistributor<String, Pipe> distributor = new FlowDistributor<>(PowerSource.class, PowerSink.class);
+
+        components.add(PowerSource.class, left);
+        components.add(PowerSource.class, right);
+        components.add(PowerSink.class, lamp);
+        route("a", "c", Long.MAX_VALUE);
+        route("b", "c", Long.MAX_VALUE);
+
+        assertEquals(10, distribute(distributor, components));
+        assertEquals(10, left.extracted + right.extracted);
+
+        // whichever source went first fills the lamp, so the other one has to go first on the next tick
+        assertEquals(10, distribute(distributor, components));
+        assertEquals(10, left.extracted);
+        assertEquals(10, right.extracted);
+    }
+
+    @Test
+    void mergedNetworksKeepOneDistributorPerKind() {
+        BlockWorld world = new BlockWorld();
+        List<CountingDistributor> runs = new ArrayList<>();
+
+        world.place(0, 0, 0, true)
+                .getNetwork()
+                .addFlowDistributor(new CountingDistributor(runs, ItemSink.class));
+
+        BlockNetwork other = world.place(2, 0, 0, true)
+                .getNetwork();
+
+        other.addFlowDistributor(new CountingDistributor(runs, ItemSink.class));
+        other.addFlowDistributor(new CountingDistributor(runs, FluidSink.class));
+
+        world.place(1, 0, 0, false);
+        world.grid.tick();
+
+        assertEquals(1, world.grid.networks.size());
+        assertEquals(2, runs.size());
+        assertNotSame(runs.get(0).sinkClass, runs.get(1).sinkClass);
+    }
+
+    @Test
+    void splitOffNetworksGetCopiesOfTheDistributors() {
+        BlockWorld world = new BlockWorld();
+        List<CountingDistributor> runs = new ArrayList<>();
+
+        world.place(0, 0, 0, true);
+        BlockElement middle = world.place(1, 0, 0, false);
+        world.place(2, 0, 0, true);
+
+        middle.getNetwork()
+                .addFlowDistributor(new CountingDistributor(runs, ItemSink.class));
+        world.remove(middle);
+        world.grid.tick();
+
+        assertEquals(2, world.grid.networks.size());
+        assertEquals(2, runs.size());
+        assertEquals(2, new HashSet<>(runs).size());
+    }
+}
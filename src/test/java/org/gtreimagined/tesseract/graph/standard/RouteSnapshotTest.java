@@ -0,0 +1,140 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import org.gtreimagined.tesseract.graph.RoutedNode;
+import org.gtreimagined.tesseract.graph.testing.BlockElement;
+import org.gtreimagined.tesseract.graph.testing.BlockRouteTracker;
+import org.gtreimagined.tesseract.graph.testing.BlockRoutingInfo;
+import org.gtreimagined.tesseract.graph.testing.BlockWorld;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteSnapshotTest {
+
+    @Test
+    void emptySnapshotHasNoPaths() {
+        BlockElement element = new BlockWorld().put(0, 0, 0, true);
+
+        assertEquals(-1, RouteSnapshot.<BlockElement, BlockRoutingInfo>empty().indexOf(element));
+        assertTrue(RouteSnapshot.<BlockElement, BlockRoutingInfo>empty().getPaths(element).isEmpty());
+    }
+
+    @Test
+    void freshTrackerHasNoPaths() {
+        BlockElement element = new BlockWorld().put(0, 0, 0, true);
+
+        assertTrue(new BlockRouteTracker().getPaths(element).isEmpty());
+    }
+
+    @Test
+    void pathsArePublishedOnUpdate() {
+        BlockWorld world = new BlockWorld();
+        BlockElement a = world.place(0, 0, 0, true);
+        world.place(1, 0, 0, false);
+        BlockElement b = world.place(2, 0, 0, true);
+
+        // nothing is published until the network ticks
+        assertTrue(a.getNetwork().getTracker().getPaths(a).isEmpty());
+
+        world.grid.tick();
+
+        assertEquals(1, a.getNetwork().getTracker().getPaths(a).size());
+        assertEquals(b, a.getNetwork().getTracker().getPaths(a).get(0).element());
+        assertEquals(2, a.getNetwork().getTracker().getPaths(a).get(0).routeInfo().distance());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<RoutedNode<String, Integer>> routes(String... targets) {
+        RoutedNode<String, Integer>[] nodes = new RoutedNode[targets.length];
+
+        for (int i = 0; i < targets.length; i++) {
+            nodes[i] = new RoutedNode<>(targets[i], i + 1);
+        }
+
+        return List.of(nodes);
+    }
+
+    private static void assertSamePaths(Map<String, List<RoutedNode<String, Integer>>> expected, RouteSnapshot<String, Integer> snapshot) {
+        int sources = 0;
+
+        for (Map.Entry<String, List<RoutedNode<String, Integer>>> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), snapshot.getPaths(entry.getKey()));
+            if (!entry.getValue().isEmpty()) sources++;
+        }
+
+        assertEquals(sources, snapshot.size());
+    }
+
+    @Test
+    void updatesOnlyReplaceTheChangedSources() {
+        RoutePool<String, Integer> pool = new RoutePool<>();
+        Map<String, List<RoutedNode<String, Integer>>> paths = new HashMap<>();
+
+        paths.put("a", routes("b", "c"));
+        paths.put("b", routes("a"));
+        paths.put("c", routes("a", "b"));
+
+        RouteSnapshot<String, Integer> first = RouteSnapshot.update(RouteSnapshot.empty(), 1, paths, paths.keySet(), pool);
+
+        assertSamePaths(paths, first);
+
+        // b changes, c loses every route and d shows up
+        paths.put("b", routes("c", "a"));
+        paths.remove("c");
+        paths.put("d", routes("a"));
+
+        RouteSnapshot<String, Integer> second = RouteSnapshot.update(first, 2, paths, Set.of("b", "c", "d"), pool);
+
+        assertEquals(2, second.getVersion());
+        assertSamePaths(paths, second);
+        assertEquals(-1, second.indexOf("c"));
+        // the routes of a were copied over, not interned again
+        assertEquals(first.getRouteId(first.getStart(first.indexOf("a"))), second.getRouteId(second.getStart(second.indexOf("a"))));
+        // the old snapshot doesn't change
+        assertEquals(routes("a", "b"), first.getPaths("c"));
+    }
+
+    @Test
+    void updatesWithoutNewSourcesKeepTheSourceOrder() {
+        RoutePool<String, Integer> pool = new RoutePool<>();
+        Map<String, List<RoutedNode<String, Integer>>> paths = new HashMap<>();
+
+        paths.put("a", routes("b"));
+        paths.put("b", routes("a"));
+
+        RouteSnapshot<String, Integer> first = RouteSnapshot.update(RouteSnapshot.empty(), 1, paths, paths.keySet(), pool);
+
+        paths.put("a", routes("b", "b", "b"));
+
+        RouteSnapshot<String, Integer> second = RouteSnapshot.update(first, 2, paths, Set.of("a"), pool);
+
+        assertSamePaths(paths, second);
+        assertEquals(first.indexOf("a"), second.indexOf("a"));
+        assertEquals(first.indexOf("b"), second.indexOf("b"));
+    }
+
+    @Test
+    void replacedRoutesAreDroppedFromThePool() {
+        RoutePool<String, Integer> pool = new RoutePool<>();
+        Map<String, List<RoutedNode<String, Integer>>> paths = new HashMap<>();
+
+        paths.put("a", routes("b"));
+        paths.put("b", routes("a"));
+
+        RouteSnapshot<String, Integer> snapshot = RouteSnapshot.update(RouteSnapshot.empty(), 0, paths, paths.keySet(), pool);
+
+        for (int i = 0; i < 1000; i++) {
+            paths.put("b", List.of(new RoutedNode<>("a", i)));
+            snapshot = RouteSnapshot.update(snapshot, i + 1, paths, Set.of("b"), pool);
+        }
+
+        assertSamePaths(paths, snapshot);
+        assertTrue(pool.getNodes().length < 256, "the pool kept " + pool.getNodes().length + " routes");
+    }
+}
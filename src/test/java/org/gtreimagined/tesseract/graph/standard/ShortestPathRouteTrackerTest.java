@@ -0,0 +1,117 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import org.gtreimagined.tesseract.graph.IRouteTracker;
+import org.gtreimagined.tesseract.graph.RoutedNode;
+import org.gtreimagined.tesseract.graph.testing.BlockElement;
+import org.gtreimagined.tesseract.graph.testing.BlockGrid;
+import org.gtreimagined.tesseract.graph.testing.BlockNetwork;
+import org.gtreimagined.tesseract.graph.testing.BlockRoutingInfo;
+import org.gtreimagined.tesseract.graph.testing.BlockShortestPathRouteTracker;
+import org.gtreimagined.tesseract.graph.testing.BlockWorld;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ShortestPathRouteTrackerTest {
+
+    /**
+     * Finds its routes with chain contraction.
+     */
+    static final class ContractingNetwork extends BlockNetwork {
+        @Override
+        protected IRouteTracker<BlockRoutingInfo, BlockElement, BlockElement, BlockNetwork, BlockGrid> createRouteTracker() {
+            return new BlockShortestPathRouteTracker() {
+                @Override
+                protected boolean contractsChains() {
+                    return true;
+                }
+            };
+        }
+    }
+
+    /**
+     * Only keeps routes of up to three steps.
+     */
+    static final class BoundedNetwork extends BlockNetwork {
+        @Override
+        protected IRouteTracker<BlockRoutingInfo, BlockElement, BlockElement, BlockNetwork, BlockGrid> createRouteTracker() {
+            return new BlockShortestPathRouteTracker() {
+                @Override
+                protected boolean isWithinBound(BlockRoutingInfo cost) {
+                    return cost.distance() <= 3;
+                }
+            };
+        }
+    }
+
+    /**
+     * Builds and tears down a random world, and checks after every round that the routes are the ones a breadth-first
+     * walk from every machine finds.
+     */
+    private static void assertRoutesMatchWalks(Supplier<BlockNetwork> networks) {
+        Random random = new Random(11);
+        BlockWorld world = new BlockWorld(new BlockGrid(false, networks));
+
+        for (int round = 0; round < 40; round++) {
+            for (int i = 0; i < 20; i++) {
+                int x = random.nextInt(12), y = random.nextInt(12);
+                BlockElement element = world.get(x, y, 0);
+
+                // mostly place, so that the world fills up with long pipes and junctions
+                if (element == null) world.place(x, y, 0, random.nextInt(8) == 0);
+                else if (random.nextInt(3) == 0) world.remove(element);
+            }
+
+            world.grid.tick();
+
+            for (BlockNetwork network : world.grid.networks) {
+                for (BlockElement element : network.getElements()) {
+                    if (!element.notable) continue;
+
+                    assertEquals(new HashSet<>(element.getRoutedNeighbours()), new HashSet<>(network.getTracker()
+                            .getPaths(element)), "round " + round + ", " + element);
+                }
+            }
+        }
+    }
+
+    @Test
+    void routesAreTheShortestWalks() {
+        assertRoutesMatchWalks(BlockNetwork.ShortestPaths::new);
+    }
+
+    @Test
+    void contractedChainsFindTheSameRoutes() {
+        assertRoutesMatchWalks(ContractingNetwork::new);
+    }
+
+    @Test
+    void routesBeyondTheBoundAreDropped() {
+        BlockWorld world = new BlockWorld(new BlockGrid(false, BoundedNetwork::new));
+        BlockElement source = world.place(0, 0, 0, true);
+
+        for (int x = 1; x < 6; x++) {
+            world.place(x, 0, 0, false);
+        }
+
+        BlockElement near = world.place(0, 1, 0, false);
+        BlockElement nearMachine = world.place(0, 2, 0, true);
+        BlockElement farMachine = world.place(6, 0, 0, true);
+
+        world.grid.tick();
+
+        List<RoutedNode<BlockElement, BlockRoutingInfo>> paths = source.getNetwork()
+                .getTracker()
+                .getPaths(source);
+
+        assertEquals(List.of(new RoutedNode<>(nearMachine, new BlockRoutingInfo(2))), paths);
+        assertSame(source.getNetwork(), farMachine.getNetwork());
+        assertSame(source.getNetwork(), near.getNetwork());
+    }
+}
@@ -0,0 +1,240 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import org.gtreimagined.tesseract.graph.standard.StandardGrid.NeighbourChange;
+import org.gtreimagined.tesseract.graph.testing.BlockElement;
+import org.gtreimagined.tesseract.graph.testing.BlockGrid;
+import org.gtreimagined.tesseract.graph.testing.BlockNetwork;
+import org.gtreimagined.tesseract.graph.testing.BlockWorld;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StandardGridTest {
+
+    /**
+     * Remembers every dispatch of coalesced neighbour changes.
+     */
+    static final class RecordingGrid extends BlockGrid {
+        final List<List<NeighbourChange<BlockElement>>> dispatched = new ArrayList<>();
+
+        RecordingGrid() {
+            super(false, false);
+        }
+
+        @Override
+        protected void dispatchNeighbourChanges(List<NeighbourChange<BlockElement>> changes) {
+            dispatched.add(List.copyOf(changes));
+            super.dispatchNeighbourChanges(changes);
+        }
+    }
+
+    @Test
+    void unregisteredNeighboursGetNoEdges() {
+        BlockWorld world = new BlockWorld();
+        BlockElement a = world.place(0, 0, 0, false);
+        BlockElement b = world.put(1, 0, 0, false);
+
+        // a reports b as a neighbour, but b isn't in the grid yet
+        world.grid.updateNeighbours(a);
+
+        assertFalse(world.grid.storage.hasEdge(a, b));
+        assertTrue(world.grid.storage.getNeighbours(b).isEmpty());
+        assertNull(b.getNetwork());
+
+        world.grid.addElement(b);
+
+        assertTrue(world.grid.storage.hasEdge(a, b));
+        assertTrue(world.grid.storage.hasEdge(b, a));
+        assertSame(a.getNetwork(), b.getNetwork());
+    }
+
+    @Test
+    void removedNeighboursLoseTheirEdges() {
+        BlockWorld world = new BlockWorld();
+        BlockElement a = world.place(0, 0, 0, false);
+        BlockElement b = world.place(1, 0, 0, false);
+
+        // b stays in the world, so a still reports it, but it's no longer in the grid
+        world.grid.removeElement(b);
+        world.grid.updateNeighbours(a);
+
+        assertFalse(world.grid.storage.hasEdge(a, b));
+        assertFalse(world.grid.storage.contains(b));
+        assertNull(b.getNetwork());
+    }
+
+    /**
+     * @return The positions of the elements of every network.
+     */
+    static Set<Set<List<Integer>>> partition(BlockWorld world) {
+        Set<Set<List<Integer>>> partition = new HashSet<>();
+
+        for (BlockNetwork network : world.grid.networks) {
+            Set<List<Integer>> positions = new HashSet<>();
+
+            for (BlockElement element : network.getElements()) {
+                positions.add(List.of(element.x, element.y, element.z));
+            }
+
+            partition.add(positions);
+        }
+
+        return partition;
+    }
+
+    /**
+     * Places or removes an element at a random position of a small box, the same way in both worlds.
+     */
+    private static void toggle(Random random, BlockWorld first, BlockWorld second) {
+        int x = random.nextInt(8), y = random.nextInt(8), z = random.nextInt(2);
+        boolean notable = random.nextInt(4) == 0;
+
+        for (BlockWorld world : List.of(first, second)) {
+            BlockElement element = world.get(x, y, z);
+
+            if (element == null) world.place(x, y, z, notable);
+            else world.remove(element);
+        }
+    }
+
+    @Test
+    void batchedChangesEndUpLikeSingleChanges() {
+        Random random = new Random(42);
+        BlockWorld single = new BlockWorld();
+        BlockWorld batched = new BlockWorld();
+
+        for (int round = 0; round < 50; round++) {
+            batched.grid.beginBatch();
+
+            for (int i = 0; i < 1 + random.nextInt(40); i++) {
+                toggle(random, single, batched);
+            }
+
+            batched.grid.commitBatch();
+
+            GridVerifier.check(single.grid);
+            GridVerifier.check(batched.grid);
+            assertEquals(partition(single), partition(batched), "round " + round);
+        }
+    }
+
+    @Test
+    void nestedBatchesOnlyApplyOnTheOutermostCommit() {
+        BlockWorld world = new BlockWorld();
+
+        world.grid.beginBatch();
+        world.grid.beginBatch();
+
+        BlockElement a = world.place(0, 0, 0, true);
+        BlockElement b = world.place(1, 0, 0, false);
+
+        world.grid.commitBatch();
+
+        assertNull(a.getNetwork());
+        assertFalse(world.grid.storage.contains(b));
+
+        world.grid.commitBatch();
+
+        assertSame(a.getNetwork(), b.getNetwork());
+        assertTrue(world.grid.storage.hasEdge(a, b));
+        assertThrows(IllegalStateException.class, world.grid::commitBatch);
+    }
+
+    @Test
+    void elementsAddedAndRemovedInOneBatchNeverShowUp() {
+        BlockWorld world = new BlockWorld();
+        BlockElement a = world.place(0, 0, 0, true);
+
+        world.grid.beginBatch();
+        world.remove(world.place(1, 0, 0, false));
+        world.grid.commitBatch();
+
+        assertEquals(1, world.grid.storage.size());
+        assertEquals(1, world.grid.networks.size());
+        assertTrue(world.grid.storage.getNeighbours(a)
+                .isEmpty());
+    }
+
+    /**
+     * @return The neighbours every element gained in a dispatch.
+     */
+    private static Map<BlockElement, Set<BlockElement>> added(List<NeighbourChange<BlockElement>> changes) {
+        Map<BlockElement, Set<BlockElement>> added = new HashMap<>();
+
+        for (NeighbourChange<BlockElement> change : changes) {
+            assertTrue(change.removed()
+                    .isEmpty());
+            assertFalse(added.containsKey(change.element()), "one change per element");
+            added.put(change.element(), new HashSet<>(change.added()));
+        }
+
+        return added;
+    }
+
+    @Test
+    void coalescedEventsAreDispatchedOncePerBatch() {
+        RecordingGrid grid = new RecordingGrid();
+        BlockWorld world = new BlockWorld(grid);
+
+        grid.setCoalescedNeighbourEvents(true);
+        grid.beginBatch();
+
+        BlockElement a = world.place(0, 0, 0, true);
+        BlockElement b = world.place(1, 0, 0, false);
+        BlockElement c = world.place(2, 0, 0, true);
+
+        grid.commitBatch();
+
+        assertEquals(1, grid.dispatched.size());
+        assertEquals(Map.of(a, Set.of(b), b, Set.of(a, c), c, Set.of(b)), added(grid.dispatched.get(0)));
+    }
+
+    @Test
+    void edgesThatComeBackCancelOut() {
+        RecordingGrid grid = new RecordingGrid();
+        BlockWorld world = new BlockWorld(grid);
+        BlockElement a = world.place(0, 0, 0, true);
+        BlockElement b = world.place(1, 0, 0, false);
+
+        grid.setCoalescedNeighbourEvents(true);
+
+        // b is taken out of the grid and put back, so nobody's neighbours changed in the end
+        grid.beginBatch();
+        grid.removeElement(b);
+        grid.addElement(b);
+        grid.commitBatch();
+
+        assertTrue(grid.dispatched.isEmpty());
+        assertTrue(grid.storage.hasEdge(a, b));
+
+        world.remove(b);
+
+        // both sides hear about the edge, including the element that was removed
+        assertEquals(1, grid.dispatched.size());
+        assertEquals(Set.of(new NeighbourChange<>(a, List.of(), List.of(b)), new NeighbourChange<>(b, List.of(), List.of(a))), new HashSet<>(grid.dispatched.get(0)));
+    }
+
+    @Test
+    void eventsArentCoalescedByDefault() {
+        RecordingGrid grid = new RecordingGrid();
+        BlockWorld world = new BlockWorld(grid);
+
+        world.place(0, 0, 0, true);
+        world.place(1, 0, 0, false);
+
+        assertTrue(grid.dispatched.isEmpty());
+    }
+}
@@ -0,0 +1,165 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import org.gtreimagined.tesseract.graph.RoutedNode;
+import org.gtreimagined.tesseract.graph.testing.BlockElement;
+import org.gtreimagined.tesseract.graph.testing.BlockRouteTracker;
+import org.gtreimagined.tesseract.graph.testing.BlockRoutingInfo;
+import org.gtreimagined.tesseract.graph.testing.BlockShortestPathRouteTracker;
+import org.gtreimagined.tesseract.graph.testing.BlockWorld;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StandardRouteTrackerTest {
+
+    /**
+     * Fails every rebuild while {@link #failing} is set.
+     */
+    static final class FailingTracker extends BlockShortestPathRouteTracker {
+        boolean failing = false;
+
+        @Override
+        protected List<RoutedNode<BlockElement, BlockRoutingInfo>> makePaths(BlockElement source) {
+            if (failing) throw new IllegalStateException("rebuild failed on purpose");
+
+            return super.makePaths(source);
+        }
+    }
+
+    /**
+     * Remembers every source it computed routes for.
+     */
+    static final class RecordingTracker extends BlockRouteTracker {
+        final List<BlockElement> built = new ArrayList<>();
+
+        RecordingTracker(int cacheCapacity) {
+            super(cacheCapacity);
+        }
+
+        @Override
+        protected List<RoutedNode<BlockElement, BlockRoutingInfo>> makePaths(BlockElement source) {
+            built.add(source);
+            return super.makePaths(source);
+        }
+    }
+
+    @Test
+    void lazyTrackersForgetTheLeastRecentlyUsedRoutes() {
+        BlockWorld world = new BlockWorld();
+        BlockElement a = world.place(0, 0, 0, true);
+        BlockElement b = world.place(2, 0, 0, true);
+        BlockElement c = world.place(4, 0, 0, true);
+        RecordingTracker tracker = new RecordingTracker(2);
+
+        world.place(1, 0, 0, false);
+        world.place(3, 0, 0, false);
+        tracker.setNetwork(a.getNetwork());
+
+        for (BlockElement element : a.getNetwork()
+                .getElements()) {
+            tracker.onElementAdded(element);
+        }
+
+        tracker.updateEdges();
+
+        // nothing is computed until it's asked for
+        assertTrue(tracker.built.isEmpty());
+
+        assertEquals(List.of(new RoutedNode<>(b, new BlockRoutingInfo(2))), tracker.getPaths(a));
+        tracker.getPaths(b);
+        tracker.getPaths(a);
+
+        assertEquals(List.of(a, b), tracker.built);
+
+        // b was used least recently, so c takes its place
+        tracker.getPaths(c);
+        tracker.getPaths(a);
+        tracker.getPaths(b);
+
+        assertEquals(List.of(a, b, c, b), tracker.built);
+
+        // changes only forget the routes they affect
+        tracker.markDirty(b);
+        tracker.updateEdges();
+        tracker.getPaths(a);
+        tracker.getPaths(b);
+
+        assertEquals(List.of(a, b, c, b, b), tracker.built);
+
+        // the snapshot only holds what was cached when it was published
+        assertEquals(1, tracker.getRouteSnapshot()
+                .size());
+        assertEquals(-1, tracker.getRouteSnapshot()
+                .indexOf(b));
+    }
+
+    @Test
+    void lazyTrackersNeedACapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new BlockRouteTracker(0));
+    }
+
+    @Test
+    void asyncRebuildsAreRefusedWhenRoutesWalkTheWorld() {
+        BlockRouteTracker tracker = new BlockRouteTracker();
+
+        assertThrows(IllegalStateException.class, () -> tracker.setAsyncRebuilds(Runnable::run, 0));
+
+        // turning them off is always fine
+        tracker.setAsyncRebuilds(null, 0);
+    }
+
+    @Test
+    void shortestPathTrackersRebuildAsync() {
+        new BlockShortestPathRouteTracker().setAsyncRebuilds(Runnable::run, 0);
+    }
+
+    @Test
+    void failedBackgroundRebuildsKeepThePreviousRoutes() {
+        BlockWorld world = new BlockWorld(false, true);
+        BlockElement a = world.place(0, 0, 0, true);
+        BlockElement pipe = world.place(1, 0, 0, false);
+        BlockElement b = world.place(2, 0, 0, true);
+        FailingTracker tracker = new FailingTracker();
+
+        // rebuilds run right away on the updating thread, and are published by the next update
+        tracker.setNetwork(a.getNetwork());
+        tracker.setAsyncRebuilds(Runnable::run, 0);
+
+        for (BlockElement element : List.of(a, pipe, b)) {
+            tracker.onElementAdded(element);
+        }
+
+        tracker.updateEdges();
+        tracker.updateEdges();
+
+        List<RoutedNode<BlockElement, BlockRoutingInfo>> routes = List.of(new RoutedNode<>(b, new BlockRoutingInfo(2)));
+
+        assertEquals(routes, tracker.getPaths(a));
+
+        tracker.failing = true;
+        tracker.markDirty(a);
+
+        CompletableFuture<?> fresh = tracker.getFreshRouteSnapshot();
+
+        tracker.updateEdges();
+        tracker.updateEdges();
+
+        assertEquals(routes, tracker.getPaths(a));
+        assertFalse(fresh.isDone());
+
+        tracker.failing = false;
+        tracker.updateEdges();
+        tracker.updateEdges();
+
+        assertTrue(fresh.isDone());
+        assertFalse(fresh.isCompletedExceptionally());
+        assertEquals(routes, tracker.getPaths(a));
+    }
+}
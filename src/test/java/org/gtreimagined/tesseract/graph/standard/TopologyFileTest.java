@@ -0,0 +1,173 @@
+package org.gtreimagined.tesseract.graph.standard;
+
+import org.gtreimagined.tesseract.graph.testing.BlockElement;
+import org.gtreimagined.tesseract.graph.testing.BlockNetwork;
+import org.gtreimagined.tesseract.graph.testing.BlockWorld;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopologyFileTest {
+
+    @TempDir
+    Path dir;
+
+    private static long id(BlockElement element) {
+        return ((long) element.x << 32) | element.y;
+    }
+
+    private static BlockElement find(BlockWorld world, long id) {
+        return world.get((int) (id >>> 32), (int) id, 0);
+    }
+
+    private static BlockWorld randomWorld() {
+        Random random = new Random(3);
+        BlockWorld world = new BlockWorld(false, true);
+
+        for (int i = 0; i < 300; i++) {
+            int x = random.nextInt(16), y = random.nextInt(16);
+
+            if (world.get(x, y, 0) == null) world.place(x, y, 0, random.nextInt(6) == 0);
+        }
+
+        return world;
+    }
+
+    /**
+     * @return A world with the same blocks, none of which are in its grid yet.
+     */
+    private static BlockWorld copyBlocks(BlockWorld world) {
+        BlockWorld copy = new BlockWorld(false, true);
+
+        for (BlockElement element : world.grid.storage.getVertices()) {
+            copy.put(element.x, element.y, element.z, element.notable);
+        }
+
+        return copy;
+    }
+
+    private static TopologyFile sample() {
+        return new TopologyFile(new long[]{7, 8, 9}, new int[]{0, 0, 1}, 2, new int[]{0, 1, 2, 2}, new int[]{1, 0});
+    }
+
+    @Test
+    void filesReadBackWhatWasWritten() throws IOException {
+        Path path = dir.resolve("topology.bin");
+        TopologyFile written = sample();
+
+        written.write(path);
+
+        TopologyFile read = TopologyFile.read(path);
+
+        assertNotNull(read);
+        assertArrayEquals(written.ids, read.ids);
+        assertArrayEquals(written.networks, read.networks);
+        assertEquals(written.networkCount, read.networkCount);
+        assertArrayEquals(written.edgeOffsets, read.edgeOffsets);
+        assertArrayEquals(written.edges, read.edges);
+        assertFalse(Files.exists(dir.resolve("topology.bin.tmp")));
+    }
+
+    @Test
+    void damagedFilesAreRejected() throws IOException {
+        Path path = dir.resolve("topology.bin");
+
+        sample().write(path);
+
+        byte[] bytes = Files.readAllBytes(path);
+
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] ^= 0x10;
+            Files.write(path, bytes);
+            assertNull(TopologyFile.read(path), "flipped a bit of byte " + i);
+            bytes[i] ^= 0x10;
+        }
+
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+        assertNull(TopologyFile.read(path));
+        assertNull(TopologyFile.read(dir.resolve("missing.bin")));
+    }
+
+    @Test
+    void otherVersionsAreRejected() throws IOException {
+        Path path = dir.resolve("topology.bin");
+
+        sample().write(path);
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        CRC32 crc = new CRC32();
+
+        // a well-formed file from a newer version, with a valid checksum
+        buffer.putInt(Integer.BYTES, buffer.getInt(Integer.BYTES) + 1);
+        crc.update(buffer.array(), 0, buffer.limit() - Long.BYTES);
+        buffer.putLong(buffer.limit() - Long.BYTES, crc.getValue());
+        Files.write(path, buffer.array());
+
+        assertNull(TopologyFile.read(path));
+    }
+
+    @Test
+    void loadedGridsMatchTheSavedOnes() throws IOException {
+        Path path = dir.resolve("grid.bin");
+        BlockWorld world = randomWorld();
+
+        world.grid.saveTopology(path, TopologyFileTest::id);
+
+        BlockWorld loaded = copyBlocks(world);
+
+        assertTrue(loaded.grid.loadTopology(path, id -> find(loaded, id)));
+
+        GridVerifier.check(loaded.grid);
+        assertEquals(StandardGridTest.partition(world), StandardGridTest.partition(loaded));
+
+        // routes aren't saved, so they're rebuilt on the first tick
+        world.grid.tick();
+        loaded.grid.tick();
+
+        for (BlockNetwork network : loaded.grid.networks) {
+            for (BlockElement element : network.getElements()) {
+                if (!element.notable) continue;
+
+                assertEquals(new HashSet<>(element.getRoutedNeighbours()), new HashSet<>(network.getTracker()
+                        .getPaths(element)));
+            }
+        }
+
+        assertThrows(IllegalStateException.class, () -> loaded.grid.loadTopology(path, id -> find(loaded, id)));
+    }
+
+    @Test
+    void worldsWithoutASavedBlockAreNotLoaded() throws IOException {
+        Path path = dir.resolve("grid.bin");
+        BlockWorld world = randomWorld();
+
+        world.grid.saveTopology(path, TopologyFileTest::id);
+
+        BlockWorld missing = copyBlocks(world);
+        BlockElement saved = world.grid.storage.getVertices()
+                .iterator()
+                .next();
+
+        missing.remove(missing.get(saved.x, saved.y, saved.z));
+
+        assertFalse(missing.grid.loadTopology(path, id -> find(missing, id)));
+        assertEquals(0, missing.grid.storage.size());
+        assertTrue(missing.grid.networks.isEmpty());
+    }
+}
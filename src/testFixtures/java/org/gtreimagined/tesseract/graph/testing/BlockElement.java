@@ -0,0 +1,104 @@
+package org.gtreimagined.tesseract.graph.testing;
+
+import org.gtreimagined.tesseract.graph.INotableElement;
+import org.gtreimagined.tesseract.graph.RoutedNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A block in a {@link BlockWorld}. Elements connect to every element next to them; notable elements stand in for
+ * machines and plain ones for pipes.
+ */
+public class BlockElement implements INotableElement<BlockElement, BlockRoutingInfo, BlockElement, BlockNetwork, BlockGrid> {
+
+    public final BlockWorld world;
+    public final int x, y, z;
+    public final boolean notable;
+
+    private BlockNetwork network;
+
+    public BlockElement(BlockWorld world, int x, int y, int z, boolean notable) {
+        this.world = world;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.notable = notable;
+    }
+
+    @Override
+    public void getNeighbours(Collection<BlockElement> neighbours) {
+        // elements that were taken out of the world don't connect to anything
+        if (world.get(x, y, z) != this) return;
+
+        addNeighbour(neighbours, x + 1, y, z);
+        addNeighbour(neighbours, x - 1, y, z);
+        addNeighbour(neighbours, x, y + 1, z);
+        addNeighbour(neighbours, x, y - 1, z);
+        addNeighbour(neighbours, x, y, z + 1);
+        addNeighbour(neighbours, x, y, z - 1);
+    }
+
+    private void addNeighbour(Collection<BlockElement> neighbours, int x, int y, int z) {
+        BlockElement neighbour = world.get(x, y, z);
+
+        if (neighbour != null) neighbours.add(neighbour);
+    }
+
+    @Override
+    public BlockNetwork getNetwork() {
+        return network;
+    }
+
+    @Override
+    public void setNetwork(BlockNetwork network) {
+        this.network = network;
+    }
+
+    /**
+     * Walks the pipes next to this element like a mod would, stopping at the first notable element of every path.
+     */
+    @Override
+    public List<RoutedNode<BlockElement, BlockRoutingInfo>> getRoutedNeighbours() {
+        List<RoutedNode<BlockElement, BlockRoutingInfo>> paths = new ArrayList<>();
+        HashMap<BlockElement, Integer> distances = new HashMap<>();
+        ArrayDeque<BlockElement> queue = new ArrayDeque<>();
+        List<BlockElement> neighbours = new ArrayList<>();
+
+        distances.put(this, 0);
+        queue.add(this);
+
+        while (!queue.isEmpty()) {
+            BlockElement current = queue.removeFirst();
+            int distance = distances.get(current);
+
+            if (current != this && current.notable) {
+                paths.add(new RoutedNode<>(current, new BlockRoutingInfo(distance)));
+                continue;
+            }
+
+            current.getNeighbours(neighbours);
+
+            for (BlockElement neighbour : neighbours) {
+                if (distances.putIfAbsent(neighbour, distance + 1) == null) queue.add(neighbour);
+            }
+
+            neighbours.clear();
+        }
+
+        return paths;
+    }
+
+    @Override
+    public boolean isActuallyNode() {
+        return notable;
+    }
+
+    @Override
+    public String toString() {
+        return "BlockElement{" + x + ", " + y + ", " + z + (notable ? ", notable" : "") + "}";
+    }
+}
@@ -0,0 +1,29 @@
+package org.gtreimagined.tesseract.graph.testing;
+
+import org.gtreimagined.tesseract.graph.standard.CompactGridStorage;
+import org.gtreimagined.tesseract.graph.standard.HashGridStorage;
+import org.gtreimagined.tesseract.graph.standard.StandardGrid;
+
+import java.util.function.Supplier;
+
+public class BlockGrid extends StandardGrid<BlockGrid, BlockElement, BlockElement, BlockRoutingInfo, BlockNetwork> {
+
+    private final Supplier<BlockNetwork> networkFactory;
+
+    public BlockGrid(boolean compactStorage, boolean shortestPaths) {
+        this(compactStorage, shortestPaths ? BlockNetwork.ShortestPaths::new : BlockNetwork::new);
+    }
+
+    /**
+     * @param networkFactory Creates the networks of this grid, for tests that need their own route trackers.
+     */
+    public BlockGrid(boolean compactStorage, Supplier<BlockNetwork> networkFactory) {
+        super(compactStorage ? new CompactGridStorage<>() : new HashGridStorage<>());
+        this.networkFactory = networkFactory;
+    }
+
+    @Override
+    protected BlockNetwork createNetwork() {
+        return networkFactory.get();
+    }
+}
@@ -0,0 +1,26 @@
+package org.gtreimagined.tesseract.graph.testing;
+
+import org.gtreimagined.tesseract.graph.IRouteTracker;
+import org.gtreimagined.tesseract.graph.standard.StandardNetwork;
+
+public class BlockNetwork extends StandardNetwork<BlockNetwork, BlockElement, BlockElement, BlockRoutingInfo, BlockGrid> {
+
+    public BlockNetwork() {
+        super(BlockElement.class, BlockElement.class);
+    }
+
+    @Override
+    protected IRouteTracker<BlockRoutingInfo, BlockElement, BlockElement, BlockNetwork, BlockGrid> createRouteTracker() {
+        return new BlockRouteTracker();
+    }
+
+    /**
+     * A network that finds its routes with a {@link BlockShortestPathRouteTracker}.
+     */
+    public static class ShortestPaths extends BlockNetwork {
+        @Override
+        protected IRouteTracker<BlockRoutingInfo, BlockElement, BlockElement, BlockNetwork, BlockGrid> createRouteTracker() {
+            return new BlockShortestPathRouteTracker();
+        }
+    }
+}
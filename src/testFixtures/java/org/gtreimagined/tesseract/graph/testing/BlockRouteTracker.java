@@ -0,0 +1,28 @@
+package org.gtreimagined.tesseract.graph.testing;
+
+import org.gtreimagined.tesseract.graph.RoutedNode;
+import org.gtreimagined.tesseract.graph.standard.StandardRouteTracker;
+
+public class BlockRouteTracker extends StandardRouteTracker<BlockRoutingInfo, BlockElement, BlockElement, BlockNetwork, BlockGrid> {
+
+    public BlockRouteTracker() {
+
+    }
+
+    /**
+     * Creates a lazy tracker.
+     */
+    public BlockRouteTracker(int cacheCapacity) {
+        super(cacheCapacity);
+    }
+
+    @Override
+    public int sort(RoutedNode<BlockElement, BlockRoutingInfo> a, RoutedNode<BlockElement, BlockRoutingInfo> b) {
+        return Integer.compare(a.routeInfo().distance(), b.routeInfo().distance());
+    }
+
+    @Override
+    public Class<BlockElement> getNotableElementClass() {
+        return BlockElement.class;
+    }
+}
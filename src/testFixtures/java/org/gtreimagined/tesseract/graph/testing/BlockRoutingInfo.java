@@ -0,0 +1,13 @@
+package org.gtreimagined.tesseract.graph.testing;
+
+import org.gtreimagined.tesseract.graph.IRoutingInfo;
+
+/**
+ * The length of a route in elements.
+ */
+public record BlockRoutingInfo(int distance) implements IRoutingInfo<BlockRoutingInfo> {
+    @Override
+    public BlockRoutingInfo merge(BlockRoutingInfo other) {
+        return new BlockRoutingInfo(distance + other.distance);
+    }
+}
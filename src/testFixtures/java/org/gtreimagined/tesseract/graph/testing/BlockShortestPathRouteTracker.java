@@ -0,0 +1,23 @@
+package org.gtreimagined.tesseract.graph.testing;
+
+import org.gtreimagined.tesseract.graph.standard.ShortestPathRouteTracker;
+
+public class BlockShortestPathRouteTracker extends ShortestPathRouteTracker<BlockRoutingInfo, BlockElement, BlockElement, BlockNetwork, BlockGrid> {
+
+    private static final BlockRoutingInfo STEP = new BlockRoutingInfo(1);
+
+    @Override
+    protected BlockRoutingInfo getStepInfo(BlockElement from, BlockElement to) {
+        return STEP;
+    }
+
+    @Override
+    protected int compareCost(BlockRoutingInfo a, BlockRoutingInfo b) {
+        return Integer.compare(a.distance(), b.distance());
+    }
+
+    @Override
+    public Class<BlockElement> getNotableElementClass() {
+        return BlockElement.class;
+    }
+}
@@ -0,0 +1,66 @@
+package org.gtreimagined.tesseract.graph.testing;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+/**
+ * A block world for tests and benchmarks: elements sit on integer coordinates and connect to the elements next to them.
+ * Blocks can be put into the world without being added to the grid, like blocks in chunks that haven't been scanned.
+ */
+public class BlockWorld {
+
+    public final BlockGrid grid;
+    private final Long2ObjectOpenHashMap<BlockElement> blocks = new Long2ObjectOpenHashMap<>();
+
+    public BlockWorld() {
+        this(false, false);
+    }
+
+    public BlockWorld(boolean compactStorage, boolean shortestPaths) {
+        this(new BlockGrid(compactStorage, shortestPaths));
+    }
+
+    public BlockWorld(BlockGrid grid) {
+        this.grid = grid;
+    }
+
+    public BlockElement get(int x, int y, int z) {
+        return blocks.get(pack(x, y, z));
+    }
+
+    /**
+     * Puts a new element into the world without adding it to the grid.
+     */
+    public BlockElement put(int x, int y, int z, boolean notable) {
+        BlockElement element = new BlockElement(this, x, y, z, notable);
+
+        blocks.put(pack(x, y, z), element);
+        return element;
+    }
+
+    /**
+     * Puts a new element into the world and adds it to the grid.
+     */
+    public BlockElement place(int x, int y, int z, boolean notable) {
+        BlockElement element = put(x, y, z, notable);
+
+        grid.addElement(element);
+        return element;
+    }
+
+    /**
+     * Takes an element out of the world and removes it from the grid.
+     */
+    public void remove(BlockElement element) {
+        blocks.remove(pack(element.x, element.y, element.z), element);
+        grid.removeElement(element);
+    }
+
+    public int size() {
+        return blocks.size();
+    }
+
+    private static long pack(int x, int y, int z) {
+        // 21 bits per axis, which is plenty for a test world
+        return ((long) (x & 0x1FFFFF) << 42) | ((long) (y & 0x1FFFFF) << 21) | (z & 0x1FFFFF);
+    }
+}